@@ -1,9 +1,11 @@
 package com.codejam.commons.service;
 
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.lang.Nullable;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -75,5 +77,11 @@ public class RedisService {
     public Boolean setIfAbsent(String key, String value, long expirationInSeconds) {
         return redisTemplate.opsForValue().setIfAbsent(key, value, expirationInSeconds, TimeUnit.SECONDS);
     }
-}
 
+    /**
+     * Run a Lua script atomically on the server; keys and args are sent as strings.
+     */
+    public <T> T executeScript(RedisScript<T> script, List<String> keys, String... args) {
+        return redisTemplate.execute(script, keys, (Object[]) args);
+    }
+}
@@ -62,6 +62,7 @@ pull_images() {
 
     docker pull ghcr.io/${GHCR_OWNER}/codejam-auth-service:${IMAGE_TAG:-latest}
     docker pull ghcr.io/${GHCR_OWNER}/codejam-execution-service:${IMAGE_TAG:-latest}
+    docker pull ghcr.io/${GHCR_OWNER}/codejam-java-runner:${IMAGE_TAG:-latest}
     docker pull ghcr.io/${GHCR_OWNER}/codejam-api-gateway:${IMAGE_TAG:-latest}
 
     log_info "All images pulled successfully!"
@@ -69,10 +70,14 @@ pull_images() {
 
 # Pull code execution Docker images (for execution-service)
 pull_executor_images() {
+    # Java runs in the codejam-java-runner image from GHCR (see pull_images); this is its base and fallback
     log_info "Pulling code execution runtime images..."
-    docker pull eclipse-temurin:21-jdk
-    docker pull python:3.11-slim
-    docker pull node:20-slim
+    docker pull eclipse-temurin:21-jdk-jammy
+    docker pull python:3.11-alpine
+    docker pull node:20-alpine
+    docker pull gcc:13
+    docker pull golang:1.22-alpine
+    docker pull rust:1.79-slim
     log_info "Executor images pulled successfully!"
 }
 
@@ -0,0 +1,115 @@
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Long-lived javac for the execution service's compiler container. A request is the name of a spool
+ * directory written to the request FIFO; the sources in it are compiled into its out/ directory and the
+ * exit status, a newline and the diagnostics are written to the directory's reply FIFO. The JVM stays up
+ * between requests, so javac runs JIT-compiled after warm-up.
+ */
+public class CompileServer {
+
+    private static final Path SPOOL = Path.of("/spool");
+    private static final Path REQUESTS = SPOOL.resolve("compile.fifo");
+    private static final Pattern REQUEST_ID = Pattern.compile("^[A-Za-z0-9-]{1,64}$");
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final long SPOOL_RETENTION_SECONDS = 60;
+
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+    // File managers cache the JDK image index; they are not thread-safe, so one per worker
+    private static final ThreadLocal<StandardJavaFileManager> FILE_MANAGERS =
+            ThreadLocal.withInitial(() -> COMPILER.getStandardFileManager(null, null, StandardCharsets.UTF_8));
+    private static final ScheduledExecutorService CLEANER = Executors.newSingleThreadScheduledExecutor();
+
+    public static void main(String[] args) throws Exception {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        warmUp(Path.of(args.length > 1 ? args[1] : "/opt/codejam/Warmup.java"));
+
+        // The FIFO only appears once warm, so its existence doubles as the readiness signal
+        Process mkfifo = new ProcessBuilder("mkfifo", REQUESTS.toString()).inheritIO().start();
+        if (mkfifo.waitFor() != 0) throw new IllegalStateException("mkfifo failed");
+        // Opened read-write so the read side never sees end-of-file between clients
+        try (RandomAccessFile fifo = new RandomAccessFile(REQUESTS.toFile(), "rw");
+             BufferedReader requests = new BufferedReader(
+                     new InputStreamReader(new FileInputStream(fifo.getFD()), StandardCharsets.US_ASCII))) {
+            String id;
+            while ((id = requests.readLine()) != null) {
+                String requestId = id.trim();
+                if (REQUEST_ID.matcher(requestId).matches()) {
+                    pool.execute(() -> handle(SPOOL.resolve(requestId)));
+                }
+            }
+        }
+    }
+
+    private static void handle(Path dir) {
+        String reply;
+        try {
+            reply = compile(dir);
+        } catch (Exception e) {
+            reply = "2\n" + e;
+        }
+        try {
+            // Blocks until the client's reader is attached
+            Files.writeString(dir.resolve("reply"), reply, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Failed to reply to " + dir + ": " + e);
+        } finally {
+            CLEANER.schedule(() -> delete(dir), SPOOL_RETENTION_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String compile(Path dir) throws IOException {
+        List<Path> sources;
+        try (Stream<Path> files = Files.list(dir)) {
+            sources = files.filter(path -> path.toString().endsWith(".java")).toList();
+        }
+        Path out = Files.createDirectories(dir.resolve("out"));
+        StandardJavaFileManager fileManager = FILE_MANAGERS.get();
+        Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromPaths(sources);
+        StringWriter diagnostics = new StringWriter();
+        boolean success = COMPILER.getTask(diagnostics, fileManager, null,
+                List.of("-d", out.toString(), "-proc:none", "-encoding", "UTF-8"), null, units).call();
+        // Report paths the way javac run from the source directory would
+        String output = diagnostics.toString().replace(dir + "/", "");
+        return (success ? 0 : 1) + "\n" + output;
+    }
+
+    private static void warmUp(Path source) throws IOException {
+        if (!Files.exists(source)) return;
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            Path dir = Files.createTempDirectory("warmup");
+            Files.copy(source, dir.resolve(source.getFileName()));
+            compile(dir);
+            delete(dir);
+        }
+    }
+
+    private static void delete(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Failed to delete " + dir + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Training program for the CDS archives: exercises the I/O, collection, string and stream classes
+ * typical submissions use.
+ */
+public class Warmup {
+    public static void main(String[] args) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        int n = Integer.parseInt(reader.readLine().trim());
+        StringTokenizer tokens = new StringTokenizer(reader.readLine());
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < n; i++) values.add(Long.parseLong(tokens.nextToken()));
+
+        Map<Long, Integer> counts = new HashMap<>();
+        Deque<Long> deque = new ArrayDeque<>(values);
+        PriorityQueue<Long> heap = new PriorityQueue<>(Comparator.reverseOrder());
+        TreeMap<Long, Long> sorted = new TreeMap<>();
+        while (!deque.isEmpty()) {
+            long value = deque.poll();
+            counts.merge(value, 1, Integer::sum);
+            heap.add(value);
+            sorted.put(value, value * value);
+        }
+        long[] array = values.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(array);
+
+        StringBuilder out = new StringBuilder();
+        out.append(values.stream().map(String::valueOf).collect(Collectors.joining(" "))).append('\n');
+        out.append(String.format("%.3f%n", Arrays.stream(array).average().orElse(0)));
+        out.append(heap.peek()).append(' ').append(sorted.lastKey()).append(' ').append(counts.size()).append('\n');
+        System.out.print(out);
+        new Scanner("1 2.5 word").forEachRemaining(token -> {});
+    }
+}
@@ -10,7 +10,6 @@ import org.springframework.scheduling.annotation.EnableScheduling;
     "com.codejam.execution",
     "com.codejam.commons"
 }, exclude = {
-    org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration.class,
     org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration.class
 })
 @EnableConfigurationProperties(MicroserviceConfig.class)
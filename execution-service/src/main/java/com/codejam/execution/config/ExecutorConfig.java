@@ -1,13 +1,23 @@
 package com.codejam.execution.config;
 
 import com.codejam.execution.service.CodeExecutor;
+import com.codejam.execution.service.CompileArtifactCache;
+import com.codejam.execution.service.DockerContainerPool;
+import com.codejam.execution.service.DockerEventMonitor;
 import com.codejam.execution.service.DockerExecutor;
+import com.codejam.execution.service.ExecutionLimiter;
+import com.codejam.execution.service.JavaCompilerDaemon;
+import com.codejam.execution.service.Judge0Client;
 import com.codejam.execution.service.Judge0Executor;
+import com.codejam.execution.service.Judge0ResultPoller;
+import com.codejam.execution.service.Judge0SubmissionBatcher;
+import com.codejam.execution.service.LanguageRegistry;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
 import com.github.dockerjava.core.DockerClientConfig;
 import com.github.dockerjava.core.DockerClientImpl;
 import com.github.dockerjava.okhttp.OkDockerHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -18,6 +28,7 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.net.URI;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
 @Slf4j
@@ -66,13 +77,18 @@ public class ExecutorConfig {
 
     @Bean(name = "codeExecutorService", destroyMethod = "shutdown")
     public ExecutorService codeExecutorService() {
+        if (microserviceConfig.getExecutor().getConcurrency().isVirtualThreads()) {
+            log.info("Creating virtual-thread code executor");
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("code-exec-", 0).factory());
+        }
         log.info("Creating code executor thread pool");
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(4);
         executor.setMaxPoolSize(20);
         executor.setQueueCapacity(100);
         executor.setThreadNamePrefix("code-exec-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // Never run on the caller: that would bypass the timeout wrapper in DockerExecutor
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
         executor.initialize();
@@ -81,17 +97,86 @@ public class ExecutorConfig {
         return executor.getThreadPoolExecutor();
     }
 
+    @Bean(name = "executionJobExecutor", destroyMethod = "shutdown")
+    public ExecutorService executionJobExecutor() {
+        MicroserviceConfig.JobConfig jobConfig = microserviceConfig.getJobs();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobConfig.getWorkers());
+        executor.setMaxPoolSize(jobConfig.getWorkers());
+        executor.setQueueCapacity(jobConfig.getQueueCapacity());
+        executor.setThreadNamePrefix("exec-job-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        log.info("Execution job pool created: workers={}, queue={}",
+                jobConfig.getWorkers(), jobConfig.getQueueCapacity());
+        return executor.getThreadPoolExecutor();
+    }
+
+    @Bean
+    public ExecutionLimiter executionLimiter(MeterRegistry meterRegistry) {
+        return new ExecutionLimiter(microserviceConfig.getExecutor().getConcurrency(), meterRegistry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "app.executor.type", havingValue = "docker", matchIfMissing = true)
+    public DockerContainerPool dockerContainerPool(DockerClient dockerClient, ExecutionLimiter executionLimiter,
+                                                   LanguageRegistry languageRegistry) {
+        return new DockerContainerPool(dockerClient, microserviceConfig, executionLimiter, languageRegistry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "app.executor.type", havingValue = "docker", matchIfMissing = true)
+    public DockerEventMonitor dockerEventMonitor(DockerClient dockerClient) {
+        return new DockerEventMonitor(dockerClient);
+    }
+
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(name = "app.executor.type", havingValue = "docker", matchIfMissing = true)
+    public CompileArtifactCache compileArtifactCache(MeterRegistry meterRegistry) {
+        return new CompileArtifactCache(microserviceConfig, meterRegistry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "app.executor.type", havingValue = "docker", matchIfMissing = true)
+    public JavaCompilerDaemon javaCompilerDaemon(DockerClient dockerClient, ExecutionLimiter executionLimiter,
+                                                 MeterRegistry meterRegistry) {
+        return new JavaCompilerDaemon(dockerClient, microserviceConfig, executionLimiter, meterRegistry);
+    }
+
     @Bean
     @Primary
     @ConditionalOnProperty(name = "app.executor.type", havingValue = "docker", matchIfMissing = true)
-    public CodeExecutor dockerExecutor(DockerClient dockerClient, ExecutorService codeExecutorService) {
-        return new DockerExecutor(dockerClient, microserviceConfig, codeExecutorService);
+    public CodeExecutor dockerExecutor(DockerClient dockerClient, ExecutorService codeExecutorService,
+                                       DockerContainerPool dockerContainerPool, DockerEventMonitor dockerEventMonitor,
+                                       ExecutionLimiter executionLimiter, CompileArtifactCache compileArtifactCache,
+                                       JavaCompilerDaemon javaCompilerDaemon, LanguageRegistry languageRegistry) {
+        return new DockerExecutor(dockerClient, microserviceConfig, codeExecutorService, dockerContainerPool,
+                dockerEventMonitor, executionLimiter, compileArtifactCache, javaCompilerDaemon, languageRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "app.executor.type", havingValue = "judge0")
+    public Judge0ResultPoller judge0ResultPoller(Judge0Client judge0Client, MeterRegistry meterRegistry) {
+        return new Judge0ResultPoller(judge0Client, microserviceConfig, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "app.executor.type", havingValue = "judge0")
+    public Judge0SubmissionBatcher judge0SubmissionBatcher(Judge0Client judge0Client,
+                                                           Judge0ResultPoller judge0ResultPoller,
+                                                           MeterRegistry meterRegistry) {
+        return new Judge0SubmissionBatcher(judge0Client, judge0ResultPoller, microserviceConfig, meterRegistry);
     }
 
     @Bean
     @Primary
     @ConditionalOnProperty(name = "app.executor.type", havingValue = "judge0")
-    public CodeExecutor judge0Executor(org.springframework.web.client.RestTemplate judge0RestTemplate) {
-        return new Judge0Executor(microserviceConfig, judge0RestTemplate);
+    public CodeExecutor judge0Executor(Judge0Client judge0Client, ExecutorService codeExecutorService, LanguageRegistry languageRegistry,
+                                       Judge0SubmissionBatcher judge0SubmissionBatcher,
+                                       Judge0ResultPoller judge0ResultPoller) {
+        return new Judge0Executor(microserviceConfig, judge0Client, codeExecutorService, languageRegistry,
+                judge0SubmissionBatcher, judge0ResultPoller);
     }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.codejam.execution.config;
+
+import com.codejam.execution.service.Judge0Client;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.executor.type", havingValue = "judge0")
+public class Judge0WebClientConfig {
+
+    private final MicroserviceConfig microserviceConfig;
+    private ExecutorService httpExecutor;
+
+    /**
+     * JDK HttpClient connector: keeps connections alive in its own pool and negotiates HTTP/2 over TLS,
+     * falling back to HTTP/1.1 where the endpoint does not offer it.
+     */
+    @Bean
+    public WebClient judge0WebClient() {
+        MicroserviceConfig.Judge0HttpConfig config = microserviceConfig.getJudge0().getHttp();
+        // Threads the client runs response handling on; requests themselves never hold one while waiting
+        httpExecutor = Executors.newFixedThreadPool(Math.max(1, config.getIoThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "judge0-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(config.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                .executor(httpExecutor)
+                .build();
+        JdkClientHttpConnector connector = new JdkClientHttpConnector(httpClient);
+        connector.setReadTimeout(Duration.ofMillis(config.getReadTimeoutMs()));
+        log.info("Judge0 WebClient created: http2={}, ioThreads={}", config.isHttp2(), config.getIoThreads());
+        return WebClient.builder()
+                .clientConnector(connector)
+                .build();
+    }
+
+    @Bean
+    public Judge0Client judge0Client(WebClient judge0WebClient) {
+        return new Judge0Client(judge0WebClient, microserviceConfig);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (httpExecutor != null) httpExecutor.shutdownNow();
+    }
+}
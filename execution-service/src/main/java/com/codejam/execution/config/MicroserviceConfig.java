@@ -1,11 +1,15 @@
 package com.codejam.execution.config;
 
+import com.codejam.execution.dto.CodeSubmission;
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @RefreshScope
 @ConfigurationProperties(prefix = "app")
@@ -44,19 +48,78 @@ public class MicroserviceConfig {
         return judge0;
     }
 
+    private JobConfig jobs = new JobConfig();
+
+    /**
+     * Get async job config, ensuring it's never null
+     */
+    public JobConfig getJobs() {
+        if (jobs == null) {
+            jobs = new JobConfig();
+        }
+        return jobs;
+    }
+
+    private CacheConfig cache = new CacheConfig();
+
+    /**
+     * Get result cache config, ensuring it's never null
+     */
+    public CacheConfig getCache() {
+        if (cache == null) {
+            cache = new CacheConfig();
+        }
+        return cache;
+    }
+
+    private AdmissionConfig admission = new AdmissionConfig();
+
+    private Map<CodeSubmission.Language, LanguageConfig> languages = new HashMap<>();
+
+    /**
+     * Get the language registry entries, ensuring it's never null
+     */
+    public Map<CodeSubmission.Language, LanguageConfig> getLanguages() {
+        if (languages == null) {
+            languages = new HashMap<>();
+        }
+        return languages;
+    }
+
+    /**
+     * Get admission control config, ensuring it's never null
+     */
+    public AdmissionConfig getAdmission() {
+        if (admission == null) {
+            admission = new AdmissionConfig();
+        }
+        return admission;
+    }
+
     @Data
     public static class ExecutionConfig {
         private String type = "docker";
         private String dockerHost = "unix:///var/run/docker.sock";
         private Long timeoutSeconds = 30L;
+        private Long compileTimeoutSeconds = 20L;
         private Long memoryLimitMB = 256L;
         private Double cpuLimit = 0.5;
+        private PoolConfig pool = new PoolConfig();
+        private ConcurrencyConfig concurrency = new ConcurrencyConfig();
+        private BatchConfig batch = new BatchConfig();
+        private CompileCacheConfig compileCache = new CompileCacheConfig();
+        private JavaRuntimeConfig javaRuntime = new JavaRuntimeConfig();
+        private CompilerDaemonConfig compilerDaemon = new CompilerDaemonConfig();
         
         // Getters for compatibility (Lombok @Data generates these, but explicit for clarity)
         public long getTimeoutSeconds() {
             return timeoutSeconds != null ? timeoutSeconds : 30L;
         }
         
+        public long getCompileTimeoutSeconds() {
+            return compileTimeoutSeconds != null ? compileTimeoutSeconds : 20L;
+        }
+
         public long getMemoryLimitMB() {
             return memoryLimitMB != null ? memoryLimitMB : 256L;
         }
@@ -64,6 +127,248 @@ public class MicroserviceConfig {
         public double getCpuLimit() {
             return cpuLimit != null ? cpuLimit : 0.5;
         }
+
+        public PoolConfig getPool() {
+            if (pool == null) {
+                pool = new PoolConfig();
+            }
+            return pool;
+        }
+
+        public BatchConfig getBatch() {
+            if (batch == null) {
+                batch = new BatchConfig();
+            }
+            return batch;
+        }
+
+        public JavaRuntimeConfig getJavaRuntime() {
+            if (javaRuntime == null) {
+                javaRuntime = new JavaRuntimeConfig();
+            }
+            return javaRuntime;
+        }
+
+        public CompilerDaemonConfig getCompilerDaemon() {
+            if (compilerDaemon == null) {
+                compilerDaemon = new CompilerDaemonConfig();
+            }
+            return compilerDaemon;
+        }
+
+        public CompileCacheConfig getCompileCache() {
+            if (compileCache == null) {
+                compileCache = new CompileCacheConfig();
+            }
+            return compileCache;
+        }
+
+        public ConcurrencyConfig getConcurrency() {
+            if (concurrency == null) {
+                concurrency = new ConcurrencyConfig();
+            }
+            return concurrency;
+        }
+    }
+
+    /**
+     * Limits for multi-test-case batch runs.
+     */
+    @Data
+    public static class BatchConfig {
+        private int maxCases = 50;
+        private long defaultCaseTimeLimitMs = 2000;
+        private long maxCaseTimeLimitMs = 10000;
+        private long maxInputBytes = 4 * 1024 * 1024;
+        // Suites are split across up to max-shards sandboxes, never fewer than min-cases-per-shard cases each
+        private int maxShards = 4;
+        private int minCasesPerShard = 4;
+    }
+
+    /**
+     * Java launch settings. SOURCE compiles and runs a single run in one JVM with the source launcher; batch
+     * runs always compile once with javac. The CDS archives are only used with the runner image built from
+     * {@code runtimes/java}.
+     */
+    @Data
+    public static class JavaRuntimeConfig {
+        private JavaLaunchMode launchMode = JavaLaunchMode.SOURCE;
+        private String image;
+        private String runtimeArchive = "/opt/codejam/java.jsa";
+        private String compilerArchive = "/opt/codejam/javac.jsa";
+
+        public boolean hasRunnerImage() {
+            return image != null && !image.isBlank();
+        }
+    }
+
+    public enum JavaLaunchMode {
+        SOURCE,
+        COMPILE
+    }
+
+    /**
+     * Warm javac container for Java compiles. Only runs with the Java runner image; it is replaced after
+     * max-compiles compiles or max-age-seconds, whichever comes first.
+     */
+    @Data
+    public static class CompilerDaemonConfig {
+        private boolean enabled = true;
+        private int workers = 2;
+        private int maxCompiles = 500;
+        private long maxAgeSeconds = 900;
+        private long requestTimeoutMs = 10000;
+        private long startupTimeoutMs = 60000;
+        private long checkIntervalMs = 30000;
+        private long memoryLimitMB = 768;
+        private double cpuLimit = 1.0;
+    }
+
+    /**
+     * On-disk cache of compiled artifacts for compiled languages, evicted least-recently-used past max-size-mb.
+     */
+    @Data
+    public static class CompileCacheConfig {
+        private boolean enabled = true;
+        private String directory = System.getProperty("java.io.tmpdir") + "/codejam-compile-cache";
+        private long maxSizeMB = 512;
+    }
+
+    /**
+     * Execution threading and admission limits. With virtual threads the executor is unbounded and
+     * concurrency is capped only by the Docker-operation and live-container limits.
+     */
+    @Data
+    public static class ConcurrencyConfig {
+        private boolean virtualThreads = true;
+        private int maxDockerOperations = 32;
+        private int maxLiveContainers = 16;
+        // Sandbox compiles running at once, so compile-heavy languages cannot take every CPU
+        private int maxConcurrentCompiles = 4;
+        private long acquireTimeoutMs = 10000;
+    }
+
+    /**
+     * Warm container pool settings. Sizes can be overridden per language under {@code app.languages.<lang>.pool}.
+     */
+    @Data
+    public static class PoolConfig {
+        private boolean enabled = true;
+        private int minIdle = 1;
+        private int maxSize = 4;
+        private long healthCheckIntervalMs = 15000;
+    }
+
+    @Data
+    public static class LanguagePoolConfig {
+        private Integer minIdle;
+        private Integer maxSize;
+    }
+
+    /**
+     * One language registry entry. Commands are shell templates with {@code {file}}, {@code {name}} (file name
+     * without extension), {@code {out}} (compile output directory) and {@code {timeout}} placeholders;
+     * {@code {sharedArchive}} and {@code {compilerSharedArchive}} become the CDS flags on the Java runner image.
+     * Languages without a compile command are interpreted. Unset limits fall back to the executor defaults.
+     */
+    @Data
+    public static class LanguageConfig {
+        private boolean enabled = true;
+        private String image;
+        private String extension;
+        private String compileCommand;
+        private String runCommand;
+        // Optional single-process compile-and-run, used by the Java source launch mode
+        private String sourceRunCommand;
+        private Long timeoutSeconds;
+        // Budget for the compile step alone; the run keeps its full timeoutSeconds
+        private Long compileTimeoutSeconds;
+        private Long memoryLimitMB;
+        private Double cpuLimit;
+        private LanguagePoolConfig pool = new LanguagePoolConfig();
+        private Integer judge0Id;
+    }
+
+    /**
+     * Async job API settings: worker count, bounded queue size and how long finished results are kept.
+     */
+    @Data
+    public static class JobConfig {
+        private int workers = 8;
+        private int queueCapacity = 500;
+        private long resultTtlSeconds = 600;
+        private long maxWaitMs = 25000;
+    }
+
+    /**
+     * Execution result cache: a local LRU tier and an optional shared Redis tier.
+     */
+    @Data
+    public static class CacheConfig {
+        private boolean enabled = true;
+        private int localMaxEntries = 1000;
+        private long ttlSeconds = 3600;
+        private boolean redisEnabled = false;
+        // Bypass the cache for source that uses time, randomness, identity hashes, threads or the environment
+        private boolean skipNondeterministic = true;
+    }
+
+    /**
+     * Admission control: concurrent run slots, bounded queue depth and the queue-time SLO past which
+     * submissions are shed. Capacity is fixed at startup.
+     */
+    @Data
+    public static class AdmissionConfig {
+        private boolean enabled = true;
+        private int maxConcurrent = 16;
+        private int maxQueueDepth = 64;
+        private long queueTimeSloMs = 5000;
+        private long initialServiceTimeMs = 2000;
+        private FairnessConfig fairness = new FairnessConfig();
+        private Map<CodeSubmission.Priority, LaneConfig> lanes = new HashMap<>();
+
+        public LaneConfig getLane(CodeSubmission.Priority priority) {
+            LaneConfig lane = lanes != null ? lanes.get(priority) : null;
+            return lane != null ? lane : new LaneConfig();
+        }
+
+        public int getMaxQueueDepth(CodeSubmission.Priority priority) {
+            Integer override = getLane(priority).getMaxQueueDepth();
+            return override != null ? override : maxQueueDepth;
+        }
+
+        public long getQueueTimeSloMs(CodeSubmission.Priority priority) {
+            Long override = getLane(priority).getQueueTimeSloMs();
+            return override != null ? override : queueTimeSloMs;
+        }
+
+        public FairnessConfig getFairness() {
+            if (fairness == null) {
+                fairness = new FairnessConfig();
+            }
+            return fairness;
+        }
+    }
+
+    /**
+     * Per-priority lane overrides. Reserved slots can only be used by that lane or a higher one.
+     */
+    @Data
+    public static class LaneConfig {
+        private int reservedSlots;
+        private Integer maxQueueDepth;
+        private Long queueTimeSloMs;
+    }
+
+    /**
+     * Fair scheduling of execution slots across rooms. Caps of 0 or less mean unlimited.
+     */
+    @Data
+    public static class FairnessConfig {
+        private int quantum = 1;
+        private int maxRunningPerRoom = 2;
+        private int maxRunningPerUser = 4;
+        private boolean tenantMetrics = true;
     }
 
     @Data
@@ -73,8 +378,113 @@ public class MicroserviceConfig {
         private String apiKey;
         private String apiHost = "judge0-ce.p.rapidapi.com";
         private Integer timeoutSeconds = 25;
+        // Longest gap between result polls once submissions have been queued for a while
         private Integer pollIntervalMs = 1000;
-        private Integer maxPollAttempts = 25;
         private Long memoryLimitMB = 256L;
+        private Judge0BatchingConfig batching = new Judge0BatchingConfig();
+        private Judge0PollingConfig polling = new Judge0PollingConfig();
+        private Judge0CallbackConfig callback = new Judge0CallbackConfig();
+        private Judge0HttpConfig http = new Judge0HttpConfig();
+        private Judge0QuotaConfig quota = new Judge0QuotaConfig();
+
+        public Judge0QuotaConfig getQuota() {
+            if (quota == null) {
+                quota = new Judge0QuotaConfig();
+            }
+            return quota;
+        }
+
+        public Judge0HttpConfig getHttp() {
+            if (http == null) {
+                http = new Judge0HttpConfig();
+            }
+            return http;
+        }
+
+        public Judge0CallbackConfig getCallback() {
+            if (callback == null) {
+                callback = new Judge0CallbackConfig();
+            }
+            return callback;
+        }
+
+        public Judge0PollingConfig getPolling() {
+            if (polling == null) {
+                polling = new Judge0PollingConfig();
+            }
+            return polling;
+        }
+
+        public Judge0BatchingConfig getBatching() {
+            if (batching == null) {
+                batching = new Judge0BatchingConfig();
+            }
+            return batching;
+        }
+    }
+
+    /**
+     * Shared Judge0 result poller: the tick interval starts at min-interval-ms and doubles up to
+     * {@code poll-interval-ms} while nothing finishes; tokens unfinished after result-timeout-ms fail as timeouts.
+     */
+    @Data
+    public static class Judge0PollingConfig {
+        private long minIntervalMs = 200;
+        private long resultTimeoutMs = 120000;
+    }
+
+    /**
+     * Judge0 callback mode: submissions carry {@code url?secret=...} as their callback and are completed when
+     * Judge0 PUTs the result there. Polling only picks up tokens still open after fallback-after-ms.
+     */
+    @Data
+    public static class Judge0CallbackConfig {
+        private boolean enabled = false;
+        // Externally reachable address of PUT /execution/judge0/callback on this service
+        private String url;
+        private String secret;
+        private long fallbackAfterMs = 15000;
+
+        public boolean isActive() {
+            return enabled && url != null && !url.isBlank() && secret != null && !secret.isBlank();
+        }
+    }
+
+    /**
+     * Judge0 micro-batching: submissions arriving within the window share one batch create and its polls.
+     * Judge0 caps a batch at 20 submissions by default.
+     */
+    @Data
+    public static class Judge0BatchingConfig {
+        private boolean enabled = true;
+        private long windowMs = 25;
+        private int maxBatchSize = 20;
+    }
+
+    /**
+     * Judge0 WebClient: one JDK HttpClient keeps connections alive across calls and negotiates HTTP/2 when
+     * http2 is on. io-threads only handle responses; no thread is held while a call is in flight.
+     */
+    @Data
+    public static class Judge0HttpConfig {
+        private boolean http2 = true;
+        private int connectTimeoutMs = 5000;
+        private int readTimeoutMs = 35000;
+        private int ioThreads = 4;
+    }
+
+    /**
+     * Judge0 provider quota, shared by every replica through Redis. Replicas lease lease-size calls at a time;
+     * a lease is dropped at the end of its minute and unused calls go back to the day. per-minute-limit 0
+     * turns the minute window off. Without Redis each replica counts on its own.
+     */
+    @Data
+    public static class Judge0QuotaConfig {
+        private int dailyLimit = 50;
+        // Calls held back from the provider's daily limit
+        private int dailyBuffer = 5;
+        private int perMinuteLimit = 0;
+        private int leaseSize = 5;
+        private boolean redisEnabled = true;
     }
-}
\ No newline at end of file
+}
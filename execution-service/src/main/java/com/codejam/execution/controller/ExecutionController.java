@@ -1,14 +1,28 @@
 package com.codejam.execution.controller;
 
+import com.codejam.commons.dto.BaseResponse;
+import com.codejam.execution.dto.BatchExecutionResult;
+import com.codejam.execution.dto.BatchSubmission;
 import com.codejam.execution.dto.CodeSubmission;
+import com.codejam.execution.dto.ExecutionJobResponse;
 import com.codejam.execution.dto.ExecutionResult;
+import com.codejam.execution.exception.ExecutionOverloadedException;
 import com.codejam.execution.exception.RateLimitExceededException;
+import com.codejam.execution.service.ExecutionJobService;
 import com.codejam.execution.service.ExecutionService;
+import com.codejam.execution.service.ExecutionStreamService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -17,9 +31,14 @@ import org.springframework.web.bind.annotation.*;
 public class ExecutionController {
 
     private final ExecutionService executionService;
+    private final ExecutionJobService executionJobService;
+    private final ExecutionStreamService executionStreamService;
 
     @PostMapping("/run")
-    public ResponseEntity<ExecutionResult> runCode(@Valid @RequestBody CodeSubmission submission) {
+    public ResponseEntity<ExecutionResult> runCode(@Valid @RequestBody CodeSubmission submission,
+                                                   @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        submission.setUserId(userId);
+        submission.setPriority(CodeSubmission.Priority.INTERACTIVE);
         log.info("Executing code for room: {}, language: {}",
                 submission.getRoomId(), submission.getLanguage());
 
@@ -40,11 +59,84 @@ public class ExecutionController {
         }
     }
 
+    /**
+     * Judge one program against a list of test cases in a single sandbox.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchExecutionResult> runBatch(@Valid @RequestBody BatchSubmission batch,
+                                                         @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        batch.setUserId(userId);
+        batch.setPriority(CodeSubmission.Priority.GRADING);
+        log.info("Executing batch for room: {}, language: {}, cases: {}",
+                batch.getRoomId(), batch.getLanguage(), batch.getTestCases().size());
+        try {
+            BatchExecutionResult result = executionService.executeBatch(batch);
+            log.info("Batch completed for room: {}, verdict: {}, passed: {}/{}",
+                    result.getRoomId(), result.getVerdict(), result.getPassed(), result.getTotal());
+            return ResponseEntity.ok(result);
+        } catch (RateLimitExceededException e) {
+            log.warn("Rate limit exceeded for room: {}", batch.getRoomId());
+            return ResponseEntity.ok(BatchExecutionResult.systemError(batch.getRoomId(), e.getMessage()));
+        }
+    }
+
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCode(@Valid @RequestBody CodeSubmission submission,
+                                 @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        submission.setUserId(userId);
+        submission.setPriority(CodeSubmission.Priority.INTERACTIVE);
+        log.info("Streaming execution for room: {}, language: {}",
+                submission.getRoomId(), submission.getLanguage());
+        return executionStreamService.stream(submission);
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<ExecutionJobResponse> submitJob(@Valid @RequestBody CodeSubmission submission,
+                                                          @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        submission.setUserId(userId);
+        submission.setPriority(CodeSubmission.Priority.INTERACTIVE);
+        log.info("Queueing execution job for room: {}, language: {}",
+                submission.getRoomId(), submission.getLanguage());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(executionJobService.submit(submission));
+    }
+
+    /**
+     * Job status and result. With {@code waitMs > 0} this long-polls until the job finishes or the wait elapses,
+     * without holding a request thread.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public CompletableFuture<ResponseEntity<ExecutionJobResponse>> getJob(@PathVariable String jobId,
+                                                                          @RequestParam(defaultValue = "0") long waitMs) {
+        return executionJobService.awaitJob(jobId, waitMs).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Cancel the room's queued or running execution.
+     */
+    @DeleteMapping("/rooms/{roomId}/run")
+    public ResponseEntity<Map<String, Object>> cancelRun(@PathVariable String roomId) {
+        boolean cancelled = executionService.cancel(roomId);
+        log.info("Cancel requested for room: {}, running execution cancelled: {}", roomId, cancelled);
+        return ResponseEntity.ok(Map.of("roomId", roomId, "cancelled", cancelled));
+    }
+
     @GetMapping("/supported-languages")
     public ResponseEntity<?> getSupportedLanguages() {
         return ResponseEntity.ok(executionService.getSupportedLanguages());
     }
 
+    /**
+     * Load shedding: 503 with {@code Retry-After} so the gateway and clients back off instead of queueing.
+     */
+    @ExceptionHandler(ExecutionOverloadedException.class)
+    public ResponseEntity<BaseResponse> handleOverloaded(ExecutionOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(BaseResponse.error(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.name(),
+                        Map.of("estimatedWaitMs", e.getEstimatedWaitMs(),
+                                "retryAfterSeconds", e.getRetryAfterSeconds())));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Execution service is running");
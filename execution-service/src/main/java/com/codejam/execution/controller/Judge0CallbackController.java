@@ -0,0 +1,47 @@
+package com.codejam.execution.controller;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.Judge0SubmissionResponse;
+import com.codejam.execution.service.Judge0ResultPoller;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Receives finished submissions from Judge0 in callback mode. Judge0 does not sign callbacks, so the shared
+ * secret travels in the callback URL and is checked before any pending submission is completed.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/execution/judge0")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.executor.type", havingValue = "judge0")
+public class Judge0CallbackController {
+
+    private final Judge0ResultPoller resultPoller;
+    private final MicroserviceConfig microserviceConfig;
+
+    @PutMapping("/callback")
+    public ResponseEntity<Void> callback(@RequestParam(value = "secret", required = false) String secret,
+                                         @RequestBody Judge0SubmissionResponse result) {
+        MicroserviceConfig.Judge0CallbackConfig config = microserviceConfig.getJudge0().getCallback();
+        if (!config.isActive() || secret == null || !MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), config.getSecret().getBytes(StandardCharsets.UTF_8))) {
+            throw new CustomException("INVALID_CALLBACK", "Invalid Judge0 callback", HttpStatus.UNAUTHORIZED);
+        }
+        boolean completed = resultPoller.complete(result);
+        log.debug("Judge0 callback for submission {} (completed: {})", result.getToken(), completed);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.codejam.execution.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch run. {@code status} describes the sandbox run itself; {@code verdict} is the
+ * first non-accepted case verdict, or ACCEPTED when every case passed.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchExecutionResult {
+
+    private String roomId;
+    private ExecutionStatus status;
+    private Verdict verdict;
+    private String compileOutput;
+    private List<TestCaseResult> cases;
+    private int passed;
+    private int total;
+    private Long executionTimeMs;
+    private String errorMessage;
+
+    public static BatchExecutionResult of(String roomId, List<TestCaseResult> cases, String compileOutput, long timeMs) {
+        int passed = (int) cases.stream().filter(c -> c.getVerdict() == Verdict.ACCEPTED).count();
+        Verdict verdict = cases.stream()
+                .map(TestCaseResult::getVerdict)
+                .filter(v -> v != Verdict.ACCEPTED && v != Verdict.SKIPPED)
+                .findFirst()
+                .orElse(Verdict.ACCEPTED);
+        return BatchExecutionResult.builder()
+                .roomId(roomId)
+                .status(ExecutionStatus.SUCCESS)
+                .verdict(verdict)
+                .compileOutput(compileOutput)
+                .cases(cases)
+                .passed(passed)
+                .total(cases.size())
+                .executionTimeMs(timeMs)
+                .build();
+    }
+
+    public static BatchExecutionResult systemError(String roomId, String errorMessage) {
+        return BatchExecutionResult.builder()
+                .roomId(roomId)
+                .status(ExecutionStatus.SYSTEM_ERROR)
+                .errorMessage(errorMessage)
+                .build();
+    }
+}
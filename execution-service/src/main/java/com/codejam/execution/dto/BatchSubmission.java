@@ -0,0 +1,73 @@
+package com.codejam.execution.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One program judged against a list of test cases. The program is compiled once and every case
+ * runs in the same sandbox.
+ */
+@Data
+@NoArgsConstructor
+public class BatchSubmission {
+
+    @NotBlank(message = "Room ID is required")
+    private String roomId;
+
+    @NotNull(message = "Language is required")
+    private CodeSubmission.Language language;
+
+    @NotBlank(message = "Code is required")
+    private String code;
+
+    @NotEmpty(message = "At least one test case is required")
+    private List<@Valid TestCase> testCases;
+
+    /** Per-case wall time limit; defaults to {@code app.executor.batch.default-case-time-limit-ms}. */
+    private Long caseTimeLimitMs;
+
+    private ComparisonMode comparison = ComparisonMode.LINES;
+
+    /** Absolute or relative tolerance for numeric tokens in {@link ComparisonMode#TOKENS} mode. */
+    private Double floatTolerance;
+
+    /** Skip the remaining cases after the first one that is not accepted. */
+    private boolean stopOnFailure;
+
+    /**
+     * Scheduling lane, set by the controller and never from the request body.
+     */
+    @JsonIgnore
+    private CodeSubmission.Priority priority = CodeSubmission.Priority.GRADING;
+
+    @JsonIgnore
+    private String userId;
+
+    public ComparisonMode getComparison() {
+        return comparison != null ? comparison : ComparisonMode.LINES;
+    }
+
+    public CodeSubmission.Priority getPriority() {
+        return priority != null ? priority : CodeSubmission.Priority.GRADING;
+    }
+
+    /**
+     * The program alone, as a single-run submission.
+     */
+    public CodeSubmission toSubmission() {
+        CodeSubmission submission = new CodeSubmission();
+        submission.setRoomId(roomId);
+        submission.setLanguage(language);
+        submission.setCode(code);
+        submission.setUserId(userId);
+        submission.setPriority(getPriority());
+        return submission;
+    }
+}
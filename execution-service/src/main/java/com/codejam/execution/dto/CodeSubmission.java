@@ -1,10 +1,10 @@
 package com.codejam.execution.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 @Data
@@ -21,27 +21,43 @@ public class CodeSubmission {
     @NotBlank(message = "Code is required")
     private String code;
 
-    @Getter
-    public enum Language {
-        JAVASCRIPT("javascript", "node:20-alpine", ".js", "node"),
-        PYTHON("python", "python:3.11-alpine", ".py", "python"),
-        JAVA("java", "eclipse-temurin:21-jdk-jammy", ".java", "javac");
-//        CPP("cpp", "frolvlad/alpine-gcc", ".cpp", "g++"),
-//        C("c", "frolvlad/alpine-gcc", ".c", "gcc"),
-//        GO("go", "golang:1.21-alpine", ".go", "go run"),
-//        RUST("rust", "rust:1.75-alpine", ".rs", "rustc");
-
-        private final String name;
-        private final String dockerImage;
-        private final String extension;
-        private final String compiler;
-
-        Language(String name, String dockerImage, String extension, String compiler) {
-            this.name = name;
-            this.dockerImage = dockerImage;
-            this.extension = extension;
-            this.compiler = compiler;
-        }
+    /**
+     * Caller identity from the gateway's {@code X-User-Id} header, never from the request body.
+     */
+    @JsonIgnore
+    private String userId;
+
+    /**
+     * Scheduling lane, set by the controller per endpoint and never from the request body.
+     */
+    @JsonIgnore
+    private Priority priority = Priority.INTERACTIVE;
+
+    public Priority getPriority() {
+        return priority != null ? priority : Priority.INTERACTIVE;
+    }
 
+    /**
+     * Scheduling lane, highest first. Interactive runs get reserved capacity and may preempt queued
+     * grading or background work.
+     */
+    public enum Priority {
+        INTERACTIVE,
+        GRADING,
+        BACKGROUND
+    }
+
+    /**
+     * Language identifiers. Images, commands and limits come from the language registry ({@code app.languages}),
+     * and a language is only accepted while it has an enabled entry there.
+     */
+    public enum Language {
+        JAVASCRIPT,
+        PYTHON,
+        JAVA,
+        CPP,
+        C,
+        GO,
+        RUST
     }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.codejam.execution.dto;
+
+/**
+ * How program output is compared with the expected output.
+ */
+public enum ComparisonMode {
+    /** Byte-for-byte, line by line. */
+    EXACT,
+    /** Line by line, ignoring trailing whitespace on each line and trailing blank lines. */
+    LINES,
+    /** Whitespace-separated tokens; layout is ignored and numeric tokens honour the float tolerance. */
+    TOKENS
+}
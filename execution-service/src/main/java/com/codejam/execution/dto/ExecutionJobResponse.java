@@ -0,0 +1,25 @@
+package com.codejam.execution.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExecutionJobResponse {
+
+    private String jobId;
+    private String roomId;
+    private JobStatus status;
+    private ExecutionResult result;
+    private String errorMessage;
+    private Instant submittedAt;
+    private Instant completedAt;
+}
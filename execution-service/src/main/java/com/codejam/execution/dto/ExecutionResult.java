@@ -6,7 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ExecutionResult {
@@ -18,11 +18,16 @@ public class ExecutionResult {
     private Integer exitCode;
     private Long executionTimeMs;
     private String errorMessage;
+    private Boolean compileError;
+    // Compiler diagnostics, kept apart from the program's own stderr
+    private String compileOutput;
+    private Verdict verdict;
 
     public static ExecutionResult success(String roomId, String output, long timeMs) {
         return ExecutionResult.builder()
                 .roomId(roomId)
                 .status(ExecutionStatus.SUCCESS)
+                .verdict(Verdict.ACCEPTED)
                 .stdout(output)
                 .exitCode(0)
                 .executionTimeMs(timeMs)
@@ -33,6 +38,7 @@ public class ExecutionResult {
         return ExecutionResult.builder()
                 .roomId(roomId)
                 .status(ExecutionStatus.ERROR)
+                .verdict(Verdict.RUNTIME_ERROR)
                 .stderr(error)
                 .exitCode(1)
                 .executionTimeMs(timeMs)
@@ -43,11 +49,20 @@ public class ExecutionResult {
         return ExecutionResult.builder()
                 .roomId(roomId)
                 .status(ExecutionStatus.TIMEOUT)
+                .verdict(Verdict.TIME_LIMIT_EXCEEDED)
                 .errorMessage("Execution timed out")
                 .executionTimeMs(timeMs)
                 .build();
     }
 
+    public static ExecutionResult cancelled(String roomId) {
+        return ExecutionResult.builder()
+                .roomId(roomId)
+                .status(ExecutionStatus.CANCELLED)
+                .errorMessage("Execution cancelled")
+                .build();
+    }
+
     public static ExecutionResult systemError(String roomId, String errorMessage) {
         return ExecutionResult.builder()
                 .roomId(roomId)
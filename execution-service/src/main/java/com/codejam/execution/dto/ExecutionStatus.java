@@ -4,5 +4,6 @@ public enum ExecutionStatus {
     SUCCESS,
     ERROR,
     TIMEOUT,
+    CANCELLED,
     SYSTEM_ERROR
 }
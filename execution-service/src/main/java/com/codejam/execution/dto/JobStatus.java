@@ -0,0 +1,8 @@
+package com.codejam.execution.dto;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,14 @@
+package com.codejam.execution.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Judge0BatchSubmissionResponse {
+    @JsonProperty("submissions")
+    private List<Judge0SubmissionResponse> submissions;
+}
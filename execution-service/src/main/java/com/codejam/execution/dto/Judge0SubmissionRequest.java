@@ -1,5 +1,6 @@
 package com.codejam.execution.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Data;
@@ -28,4 +29,9 @@ public class Judge0SubmissionRequest {
     @JsonProperty("base64_encoded")
     @Builder.Default
     private Boolean base64Encoded = false;
+
+    // Judge0 PUTs the finished submission here instead of waiting to be polled
+    @JsonProperty("callback_url")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String callbackUrl;
 }
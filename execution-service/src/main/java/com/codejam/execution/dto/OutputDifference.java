@@ -0,0 +1,19 @@
+package com.codejam.execution.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * First point where program output diverged from the expected output. A null side means that output
+ * ended early.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutputDifference {
+
+    private long line;
+    private String expected;
+    private String actual;
+}
@@ -0,0 +1,19 @@
+package com.codejam.execution.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestCase {
+
+    /** Optional caller-side identifier echoed back in the case result. */
+    private String id;
+
+    private String stdin;
+
+    /** Expected stdout; when null the case only checks that the program runs cleanly. */
+    private String expectedOutput;
+}
@@ -0,0 +1,32 @@
+package com.codejam.execution.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TestCaseResult {
+
+    private int index;
+    private String id;
+    private Verdict verdict;
+    private String stdout;
+    private String stderr;
+    private Integer exitCode;
+    private Long executionTimeMs;
+    private OutputDifference firstDifference;
+
+    public static TestCaseResult skipped(int index, String id) {
+        return TestCaseResult.builder()
+                .index(index)
+                .id(id)
+                .verdict(Verdict.SKIPPED)
+                .build();
+    }
+}
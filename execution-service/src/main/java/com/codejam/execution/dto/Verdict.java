@@ -0,0 +1,11 @@
+package com.codejam.execution.dto;
+
+public enum Verdict {
+    ACCEPTED,
+    WRONG_ANSWER,
+    TIME_LIMIT_EXCEEDED,
+    MEMORY_LIMIT_EXCEEDED,
+    RUNTIME_ERROR,
+    COMPILATION_ERROR,
+    SKIPPED
+}
@@ -0,0 +1,20 @@
+package com.codejam.execution.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when admission control sheds a submission because the queue is full or the expected
+ * wait would break the queue-time SLO.
+ */
+@Getter
+public class ExecutionOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+    private final long estimatedWaitMs;
+
+    public ExecutionOverloadedException(String message, long retryAfterSeconds, long estimatedWaitMs) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.estimatedWaitMs = estimatedWaitMs;
+    }
+}
@@ -0,0 +1,185 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.CodeSubmission;
+import com.codejam.execution.exception.ExecutionOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of execution. At most {@code max-concurrent} runs execute at once; the
+ * rest wait in bounded per-priority queues, served by {@link FairScheduler}. A submission is shed
+ * straight away, with a retry hint, when its lane's queue is full (unless it can preempt queued
+ * lower-priority work) or when its estimated wait (work queued at its priority or above x recent
+ * service time) would exceed the lane's queue-time SLO, and also if it does not get a slot within
+ * that SLO.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    private static final double SERVICE_TIME_SMOOTHING = 0.2;
+
+    private final MicroserviceConfig.AdmissionConfig config;
+    private final FairScheduler scheduler;
+    private final Map<CodeSubmission.Priority, LaneStats> lanes = new EnumMap<>(CodeSubmission.Priority.class);
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile double avgServiceMs;
+
+    private static final class LaneStats {
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Timer queueWait;
+        private final Counter rejectedQueueFull;
+        private final Counter rejectedSlo;
+        private final Counter preempted;
+
+        private LaneStats(String lane, MeterRegistry meterRegistry) {
+            this.queueWait = Timer.builder("execution.admission.queue.wait")
+                    .tag("lane", lane)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            this.rejectedQueueFull = meterRegistry.counter("execution.admission.rejected", "reason", "queue_full", "lane", lane);
+            this.rejectedSlo = meterRegistry.counter("execution.admission.rejected", "reason", "slo", "lane", lane);
+            this.preempted = meterRegistry.counter("execution.admission.rejected", "reason", "preempted", "lane", lane);
+            meterRegistry.gauge("execution.admission.queue.depth", Tags.of("lane", lane), queued);
+        }
+    }
+
+    public AdmissionController(MicroserviceConfig microserviceConfig, FairScheduler scheduler,
+                               MeterRegistry meterRegistry) {
+        this.config = microserviceConfig.getAdmission();
+        this.scheduler = scheduler;
+        this.avgServiceMs = config.getInitialServiceTimeMs();
+        for (CodeSubmission.Priority priority : CodeSubmission.Priority.values()) {
+            String lane = FairScheduler.laneTag(priority);
+            lanes.put(priority, new LaneStats(lane, meterRegistry));
+            meterRegistry.gauge("execution.admission.estimated.wait.ms", Tags.of("lane", lane), this,
+                    c -> c.estimateWaitMs(c.queuedAtOrAbove(priority)));
+        }
+        meterRegistry.gauge("execution.admission.running", running);
+    }
+
+    /**
+     * Fail fast if a new submission would be shed right now. Used before handing work to an async queue.
+     */
+    public void checkAdmission(CodeSubmission.Priority priority) {
+        if (!config.isEnabled()) return;
+        LaneStats stats = lanes.get(priority);
+        int ahead = queuedAtOrAbove(priority);
+        if (running.get() < config.getMaxConcurrent() && ahead == 0) return;
+        if (stats.queued.get() >= config.getMaxQueueDepth(priority) && !hasLowerQueued(priority)) {
+            stats.rejectedQueueFull.increment();
+            throw overloaded("Execution queue is full", ahead + 1);
+        }
+        if (estimateWaitMs(ahead + 1) > config.getQueueTimeSloMs(priority)) {
+            stats.rejectedSlo.increment();
+            throw overloaded("Execution service is overloaded", ahead + 1);
+        }
+    }
+
+    /**
+     * Longest a submission at this priority waits for a slot before it is shed.
+     */
+    public long maxQueueWaitMs(CodeSubmission.Priority priority) {
+        return config.isEnabled() ? config.getQueueTimeSloMs(priority) : 0;
+    }
+
+    public <T> T run(FairScheduler.Tenant tenant, Supplier<T> execution) {
+        if (!config.isEnabled()) return execution.get();
+
+        CodeSubmission.Priority priority = tenant.priority();
+        LaneStats stats = lanes.get(priority);
+        long slo = config.getQueueTimeSloMs(priority);
+        int depth = stats.queued.incrementAndGet();
+        long waitStart = System.nanoTime();
+        try {
+            FairScheduler.Outcome outcome = scheduler.acquire(tenant, 0);
+            if (outcome != FairScheduler.Outcome.GRANTED) {
+                int ahead = queuedAtOrAbove(priority);
+                if (depth > config.getMaxQueueDepth(priority) && !scheduler.preemptQueued(priority)) {
+                    stats.rejectedQueueFull.increment();
+                    throw overloaded("Execution queue is full", ahead);
+                }
+                if (estimateWaitMs(ahead) > slo) {
+                    stats.rejectedSlo.increment();
+                    throw overloaded("Execution service is overloaded", ahead);
+                }
+                outcome = scheduler.acquire(tenant, slo);
+            }
+            if (outcome == FairScheduler.Outcome.PREEMPTED) {
+                stats.preempted.increment();
+                throw overloaded("Preempted by higher-priority work", queuedAtOrAbove(priority));
+            }
+            if (outcome == FairScheduler.Outcome.TIMED_OUT) {
+                stats.rejectedSlo.increment();
+                throw overloaded("Execution service is overloaded", queuedAtOrAbove(priority));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw overloaded("Execution interrupted while queued", queuedAtOrAbove(priority));
+        } finally {
+            stats.queued.decrementAndGet();
+            stats.queueWait.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        }
+
+        running.incrementAndGet();
+        long start = System.currentTimeMillis();
+        try {
+            return execution.get();
+        } finally {
+            recordServiceTime(System.currentTimeMillis() - start);
+            running.decrementAndGet();
+            scheduler.release(tenant);
+        }
+    }
+
+    /**
+     * Work that will be scheduled before a new submission at this priority.
+     */
+    private int queuedAtOrAbove(CodeSubmission.Priority priority) {
+        int queued = 0;
+        for (var entry : lanes.entrySet()) {
+            if (entry.getKey().ordinal() <= priority.ordinal()) {
+                queued += entry.getValue().queued.get();
+            }
+        }
+        return queued;
+    }
+
+    private boolean hasLowerQueued(CodeSubmission.Priority priority) {
+        for (var entry : lanes.entrySet()) {
+            if (entry.getKey().ordinal() > priority.ordinal() && entry.getValue().queued.get() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Expected time until the submission at the given queue position gets a slot.
+     */
+    private long estimateWaitMs(int position) {
+        return (long) Math.ceil(position * avgServiceMs / config.getMaxConcurrent());
+    }
+
+    private void recordServiceTime(long elapsedMs) {
+        avgServiceMs = avgServiceMs + SERVICE_TIME_SMOOTHING * (elapsedMs - avgServiceMs);
+    }
+
+    private ExecutionOverloadedException overloaded(String message, int position) {
+        long estimatedWait = estimateWaitMs(position);
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(estimatedWait / 1000.0));
+        log.warn("{}: position={}, running={}, estimatedWaitMs={}", message, position, running.get(), estimatedWait);
+        return new ExecutionOverloadedException(message, retryAfterSeconds, estimatedWait);
+    }
+}
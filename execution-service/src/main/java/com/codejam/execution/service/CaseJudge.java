@@ -0,0 +1,112 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.dto.BatchSubmission;
+import com.codejam.execution.dto.OutputDifference;
+import com.codejam.execution.dto.TestCase;
+import com.codejam.execution.dto.TestCaseResult;
+import com.codejam.execution.dto.Verdict;
+
+import java.io.StringReader;
+
+/**
+ * Judges one test case as its output streams in: stdout goes straight into an {@link OutputComparator}
+ * against the case's inline expected output, and only a bounded prefix of each stream is kept for the
+ * case result.
+ */
+final class CaseJudge implements ExecutionOutputListener {
+
+    private static final int CAPTURE_LIMIT = 64 * 1024;
+    private static final String[] MEMORY_ERRORS = {"java.lang.OutOfMemoryError", "MemoryError", "JavaScript heap out of memory",
+            "std::bad_alloc", "runtime: out of memory", "memory allocation of"};
+
+    private final int index;
+    private final TestCase testCase;
+    private final OutputComparator comparator;
+    private final StringBuilder stdout = new StringBuilder();
+    private final StringBuilder stderr = new StringBuilder();
+
+    CaseJudge(int index, TestCase testCase, BatchSubmission batch) {
+        this.index = index;
+        this.testCase = testCase;
+        this.comparator = testCase.getExpectedOutput() != null
+                ? new OutputComparator(new StringReader(testCase.getExpectedOutput()), batch.getComparison(), batch.getFloatTolerance())
+                : null;
+    }
+
+    @Override
+    public void onOutput(Channel channel, String chunk) {
+        if (channel == Channel.STDOUT) {
+            if (comparator != null) comparator.accept(chunk);
+            capture(stdout, chunk);
+        } else {
+            capture(stderr, chunk);
+        }
+    }
+
+    /**
+     * Verdict for a finished run. Resource verdicts take precedence over output comparison.
+     * @param oomKilled the kernel OOM killer fired in the sandbox during the run
+     */
+    TestCaseResult result(int exitCode, long elapsedMs, long timeLimitMs, boolean oomKilled) {
+        OutputDifference difference = comparator != null ? comparator.finish() : null;
+        Verdict verdict = limitVerdict(exitCode, elapsedMs, timeLimitMs, oomKilled, stderr);
+        if (verdict == null) {
+            if (exitCode != 0) {
+                verdict = Verdict.RUNTIME_ERROR;
+            } else if (difference != null) {
+                verdict = Verdict.WRONG_ANSWER;
+            } else {
+                verdict = Verdict.ACCEPTED;
+            }
+        }
+        return TestCaseResult.builder()
+                .index(index)
+                .id(testCase.getId())
+                .verdict(verdict)
+                .stdout(stdout.toString())
+                .stderr(stderr.toString())
+                .exitCode(exitCode)
+                .executionTimeMs(elapsedMs)
+                .firstDifference(verdict == Verdict.WRONG_ANSWER ? difference : null)
+                .build();
+    }
+
+    /**
+     * Verdict for a run stopped by a sandbox limit, shared by every execution path so they agree. A kill
+     * or {@code timeout} exit (124, or 137 with {@code -s KILL}) at the time limit is a timeout; only a real
+     * out-of-memory signal, the OOM killer or the runtime's own message, is a memory limit. Anything else,
+     * including a program that exits with 124 or 137 itself, is left to the caller.
+     * @return null when no limit was hit
+     */
+    static Verdict limitVerdict(int exitCode, long elapsedMs, long timeLimitMs, boolean oomKilled,
+                                CharSequence stderr) {
+        if (elapsedMs > timeLimitMs || (isTimeoutExit(exitCode) && elapsedMs >= timeLimitMs)) {
+            return Verdict.TIME_LIMIT_EXCEEDED;
+        }
+        if (oomKilled || (stderr != null && reportsOutOfMemory(stderr))) {
+            return Verdict.MEMORY_LIMIT_EXCEEDED;
+        }
+        return null;
+    }
+
+    static boolean isTimeoutExit(int exitCode) {
+        return exitCode == 124 || exitCode == 137;
+    }
+
+    /**
+     * Whether a runtime's stderr carries its out-of-memory message.
+     */
+    static boolean reportsOutOfMemory(CharSequence stderr) {
+        String text = stderr.toString();
+        for (String marker : MEMORY_ERRORS) {
+            if (text.contains(marker)) return true;
+        }
+        return false;
+    }
+
+    private void capture(StringBuilder target, String chunk) {
+        int room = CAPTURE_LIMIT - target.length();
+        if (room <= 0) return;
+        target.append(chunk, 0, Math.min(room, chunk.length()));
+    }
+}
@@ -1,7 +1,11 @@
 package com.codejam.execution.service;
 
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.dto.BatchExecutionResult;
+import com.codejam.execution.dto.BatchSubmission;
 import com.codejam.execution.dto.CodeSubmission;
 import com.codejam.execution.dto.ExecutionResult;
+import org.springframework.http.HttpStatus;
 
 public interface CodeExecutor {
 
@@ -11,4 +15,31 @@ public interface CodeExecutor {
      * @return Execution result with stdout, stderr, and exit code
      */
     ExecutionResult execute(CodeSubmission submission);
+
+    /**
+     * Execute code and push output to the listener as it is produced. Executors that cannot stream
+     * deliver the whole output once the run has finished.
+     * @return Execution result; stdout and stderr are only populated if they were not streamed
+     */
+    default ExecutionResult executeStreaming(CodeSubmission submission, ExecutionOutputListener listener) {
+        ExecutionResult result = execute(submission);
+        if (result.getCompileOutput() != null && !result.getCompileOutput().isEmpty()) {
+            listener.onOutput(ExecutionOutputListener.Channel.COMPILE, result.getCompileOutput());
+        }
+        if (result.getStdout() != null && !result.getStdout().isEmpty()) {
+            listener.onOutput(ExecutionOutputListener.Channel.STDOUT, result.getStdout());
+        }
+        if (result.getStderr() != null && !result.getStderr().isEmpty()) {
+            listener.onOutput(ExecutionOutputListener.Channel.STDERR, result.getStderr());
+        }
+        return result;
+    }
+
+    /**
+     * Run one program against a list of test cases and judge each case.
+     */
+    default BatchExecutionResult executeBatch(BatchSubmission batch) {
+        throw new CustomException("BATCH_NOT_SUPPORTED", "Batch execution is not supported by this executor",
+                HttpStatus.NOT_IMPLEMENTED);
+    }
 }
\ No newline at end of file
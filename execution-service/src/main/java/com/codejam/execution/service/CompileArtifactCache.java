@@ -0,0 +1,196 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.config.MicroserviceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Local disk LRU of compiled output (class files, binaries), stored as the tar archive Docker returns for
+ * the sandbox's output directory so a hit is copied straight back in. Keyed by source, file name, image and
+ * compile command, so a toolchain or flag change never serves a stale artifact.
+ */
+@Slf4j
+public class CompileArtifactCache {
+
+    private static final String SUFFIX = ".tar";
+
+    private final MicroserviceConfig microserviceConfig;
+    // key -> artifact size in bytes, in access order
+    private final Map<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private long totalBytes;
+
+    public CompileArtifactCache(MicroserviceConfig microserviceConfig, MeterRegistry meterRegistry) {
+        this.microserviceConfig = microserviceConfig;
+        this.hits = meterRegistry.counter("execution.compile.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("execution.compile.cache.requests", "result", "miss");
+        meterRegistry.gauge("execution.compile.cache.size.bytes", this, cache -> cache.sizeBytes());
+        meterRegistry.gauge("execution.compile.cache.entries", this, cache -> cache.entries());
+    }
+
+    /**
+     * Re-index artifacts left on disk by a previous run, oldest first so LRU order survives restarts.
+     */
+    public void start() {
+        if (!isEnabled()) {
+            log.info("Compile artifact cache disabled");
+            return;
+        }
+        Path directory = directory();
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                        .sorted(Comparator.comparing(this::lastModified))
+                        .toList();
+            }
+            synchronized (index) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    long size = Files.size(file);
+                    index.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                    totalBytes += size;
+                }
+                evict();
+            }
+            log.info("Compile artifact cache at {} with {} entries ({} bytes)", directory, index.size(), totalBytes);
+        } catch (IOException e) {
+            log.warn("Failed to load compile artifact cache from {}: {}", directory, e.getMessage());
+        }
+    }
+
+    public String key(String image, String compileCommand, String fileName, String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{image, compileCommand, fileName, code}) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<byte[]> get(String key) {
+        if (!isEnabled()) return Optional.empty();
+        boolean indexed;
+        synchronized (index) {
+            indexed = index.get(key) != null;
+        }
+        if (indexed) {
+            Path file = file(key);
+            try {
+                byte[] artifact = Files.readAllBytes(file);
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                hits.increment();
+                return Optional.of(artifact);
+            } catch (IOException e) {
+                log.debug("Compile artifact {} unreadable, dropping: {}", key, e.getMessage());
+                remove(key);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, byte[] artifact) {
+        if (!isEnabled() || artifact.length > maxBytes()) return;
+        Path file = file(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(temp, artifact);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.debug("Failed to store compile artifact {}: {}", key, e.getMessage());
+            return;
+        }
+        synchronized (index) {
+            Long previous = index.put(key, (long) artifact.length);
+            totalBytes += artifact.length - (previous != null ? previous : 0);
+            evict();
+        }
+    }
+
+    private void evict() {
+        var eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes() && eldest.hasNext()) {
+            var entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            deleteQuietly(file(entry.getKey()));
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (index) {
+            Long size = index.remove(key);
+            if (size != null) totalBytes -= size;
+        }
+        deleteQuietly(file(key));
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete compile artifact {}: {}", file, e.getMessage());
+        }
+    }
+
+    private FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private long sizeBytes() {
+        synchronized (index) {
+            return totalBytes;
+        }
+    }
+
+    private int entries() {
+        synchronized (index) {
+            return index.size();
+        }
+    }
+
+    private boolean isEnabled() {
+        return microserviceConfig.getExecutor().getCompileCache().isEnabled();
+    }
+
+    private long maxBytes() {
+        return microserviceConfig.getExecutor().getCompileCache().getMaxSizeMB() * 1024 * 1024;
+    }
+
+    private Path directory() {
+        return Path.of(microserviceConfig.getExecutor().getCompileCache().getDirectory());
+    }
+
+    private Path file(String key) {
+        return directory().resolve(key + SUFFIX);
+    }
+}
@@ -0,0 +1,207 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.CodeSubmission;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a set of started, idle sandbox containers per language so that a run only has to
+ * copy its source in and exec, instead of paying for create + start on the request path.
+ * Containers are single-use: every container handed out is removed after the run and a
+ * fresh one is warmed in the background.
+ */
+@Slf4j
+public class DockerContainerPool {
+
+    static final String POOL_LABEL = "codejam.pool";
+    static final String[] IDLE_COMMAND = {"tail", "-f", "/dev/null"};
+
+    private final DockerClient dockerClient;
+    private final MicroserviceConfig microserviceConfig;
+    private final ExecutionLimiter executionLimiter;
+    private final LanguageRegistry languageRegistry;
+    private final Map<CodeSubmission.Language, LanguagePool> pools = new EnumMap<>(CodeSubmission.Language.class);
+    private final ExecutorService maintenanceExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "container-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public record PooledContainer(String containerId, CodeSubmission.Language language) {}
+
+    private static class LanguagePool {
+        private final LinkedBlockingDeque<String> idle = new LinkedBlockingDeque<>();
+        // idle + warming + checked out; bounded by max-size
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger warming = new AtomicInteger();
+    }
+
+    public DockerContainerPool(DockerClient dockerClient, MicroserviceConfig microserviceConfig,
+                               ExecutionLimiter executionLimiter, LanguageRegistry languageRegistry) {
+        this.dockerClient = dockerClient;
+        this.microserviceConfig = microserviceConfig;
+        this.executionLimiter = executionLimiter;
+        this.languageRegistry = languageRegistry;
+        for (CodeSubmission.Language language : CodeSubmission.Language.values()) {
+            pools.put(language, new LanguagePool());
+        }
+    }
+
+    public void start() {
+        if (!isEnabled()) {
+            log.info("Container pool disabled");
+            return;
+        }
+        log.info("Pre-warming container pool");
+        pools.keySet().forEach(this::replenish);
+    }
+
+    /**
+     * Check out an idle container for the given language.
+     * @return the container, or empty when none is warm and the caller should use a cold container
+     */
+    public Optional<PooledContainer> acquire(CodeSubmission.Language language) {
+        if (!isEnabled()) return Optional.empty();
+        LanguagePool pool = pools.get(language);
+        String containerId = pool.idle.pollFirst();
+        replenish(language);
+        if (containerId == null) {
+            log.debug("No warm {} container available", language);
+            return Optional.empty();
+        }
+        return Optional.of(new PooledContainer(containerId, language));
+    }
+
+    /**
+     * Return a container after use. It is always destroyed, never reused, so no state leaks
+     * between submissions.
+     */
+    public void release(PooledContainer container) {
+        maintenanceExecutor.execute(() -> {
+            removeContainer(container.containerId());
+            pools.get(container.language()).total.decrementAndGet();
+            replenish(container.language());
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.executor.pool.health-check-interval-ms:15000}")
+    public void healthCheck() {
+        if (!isEnabled()) return;
+        pools.forEach((language, pool) -> {
+            for (String containerId : pool.idle) {
+                if (!isRunning(containerId) && pool.idle.remove(containerId)) {
+                    log.warn("Evicting unhealthy {} container {}", language, containerId);
+                    removeContainer(containerId);
+                    pool.total.decrementAndGet();
+                }
+            }
+            // A language removed from the registry drains its idle containers
+            int maxSize = languageRegistry.find(language).map(LanguageRuntime::poolMaxSize).orElse(0);
+            int excess = pool.idle.size() - maxSize;
+            for (int i = 0; i < excess; i++) {
+                String containerId = pool.idle.pollLast();
+                if (containerId == null) break;
+                removeContainer(containerId);
+                pool.total.decrementAndGet();
+            }
+            replenish(language);
+        });
+    }
+
+    public void shutdown() {
+        maintenanceExecutor.shutdownNow();
+        pools.forEach((language, pool) -> {
+            String containerId;
+            while ((containerId = pool.idle.pollFirst()) != null) {
+                removeContainer(containerId);
+            }
+        });
+        try {
+            maintenanceExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Container pool shut down");
+    }
+
+    private boolean isEnabled() {
+        return microserviceConfig.getExecutor().getPool().isEnabled();
+    }
+
+    private void replenish(CodeSubmission.Language language) {
+        if (!isEnabled()) return;
+        LanguageRuntime runtime = languageRegistry.find(language).orElse(null);
+        if (runtime == null) return;
+        int minIdle = runtime.poolMinIdle();
+        int maxSize = runtime.poolMaxSize();
+        LanguagePool pool = pools.get(language);
+        synchronized (pool) {
+            while (pool.idle.size() + pool.warming.get() < minIdle && pool.total.get() < maxSize) {
+                pool.total.incrementAndGet();
+                pool.warming.incrementAndGet();
+                try {
+                    maintenanceExecutor.execute(() -> warmContainer(runtime, pool));
+                } catch (RuntimeException e) {
+                    pool.total.decrementAndGet();
+                    pool.warming.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void warmContainer(LanguageRuntime runtime, LanguagePool pool) {
+        CodeSubmission.Language language = runtime.language();
+        String containerId = null;
+        try (ExecutionLimiter.Permit ignored = executionLimiter.acquireDockerOperation()) {
+            containerId = dockerClient.createContainerCmd(runtime.image())
+                    .withCmd(IDLE_COMMAND)
+                    .withHostConfig(DockerExecutor.sandboxHostConfig(runtime))
+                    .withLabels(Map.of(POOL_LABEL, language.name(), DockerExecutor.SANDBOX_LABEL, "true"))
+                    .withAttachStdin(false)
+                    .withAttachStdout(false)
+                    .withAttachStderr(false)
+                    .withTty(false)
+                    .exec()
+                    .getId();
+            dockerClient.startContainerCmd(containerId).exec();
+            pool.idle.offerLast(containerId);
+            log.debug("Warmed {} container {}", language, containerId);
+        } catch (Exception e) {
+            log.warn("Failed to warm {} container: {}", language, e.getMessage());
+            if (containerId != null) removeContainer(containerId);
+            pool.total.decrementAndGet();
+        } finally {
+            pool.warming.decrementAndGet();
+        }
+    }
+
+    private boolean isRunning(String containerId) {
+        try {
+            InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(containerId).exec().getState();
+            return state != null && Boolean.TRUE.equals(state.getRunning());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void removeContainer(String containerId) {
+        try {
+            dockerClient.removeContainerCmd(containerId).withForce(true).exec();
+        } catch (Exception e) {
+            log.warn("Failed to remove pooled container {}", containerId);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.codejam.execution.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single shared subscription to the Docker {@code /events} stream for sandbox containers.
+ * Executions register a container before starting it and receive its exit through a future,
+ * so any number of in-flight runs wait without polling the daemon. Out-of-memory kills are also counted
+ * per live sandbox, so a run exec'd in a long-lived (pooled) container can tell whether the OOM killer fired.
+ */
+@Slf4j
+public class DockerEventMonitor {
+
+    private static final long RECONNECT_DELAY_MS = 1000;
+
+    private final DockerClient dockerClient;
+    private final Map<String, PendingExit> pending = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> oomKills = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reconnectScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "docker-events-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Closeable subscription;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile long lastEventEpochSeconds;
+
+    public record ContainerExit(int exitCode, boolean oomKilled) {}
+
+    private static final class PendingExit {
+        private final CompletableFuture<ContainerExit> future = new CompletableFuture<>();
+        private volatile boolean oomKilled;
+    }
+
+    public DockerEventMonitor(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    public void start() {
+        running = true;
+        lastEventEpochSeconds = System.currentTimeMillis() / 1000;
+        subscribe();
+    }
+
+    public void stop() {
+        running = false;
+        reconnectScheduler.shutdownNow();
+        closeSubscription();
+        pending.values().forEach(p -> p.future.cancel(false));
+        pending.clear();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Start tracking a container. Must be called before the container is started so a fast exit is not missed.
+     */
+    public CompletableFuture<ContainerExit> register(String containerId) {
+        return pending.computeIfAbsent(containerId, id -> new PendingExit()).future;
+    }
+
+    public void unregister(String containerId) {
+        pending.remove(containerId);
+    }
+
+    /**
+     * Out-of-memory kills seen so far in a running sandbox; compare before and after an exec.
+     */
+    public int oomKills(String containerId) {
+        AtomicInteger count = oomKills.get(containerId);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Wait briefly for an OOM kill after {@code seenBefore}; the event can trail the killed exec's exit.
+     */
+    public boolean awaitOomKill(String containerId, int seenBefore, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (oomKills) {
+            long remaining;
+            while (oomKills(containerId) <= seenBefore && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    oomKills.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return oomKills(containerId) > seenBefore;
+    }
+
+    private void subscribe() {
+        if (!running) return;
+        try {
+            // Connected only once the callback sees the stream open, see EventCallback#onStart
+            EventCallback callback = new EventCallback();
+            subscription = callback;
+            dockerClient.eventsCmd()
+                    .withEventTypeFilter(EventType.CONTAINER)
+                    .withEventFilter("die", "oom")
+                    .withLabelFilter(DockerExecutor.SANDBOX_LABEL)
+                    .withSince(String.valueOf(lastEventEpochSeconds))
+                    .exec(callback);
+        } catch (Exception e) {
+            log.warn("Failed to subscribe to Docker events: {}", e.getMessage());
+            scheduleReconnect();
+        }
+    }
+
+    private void scheduleReconnect() {
+        connected = false;
+        if (!running) return;
+        try {
+            reconnectScheduler.schedule(this::subscribe, RECONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.debug("Reconnect not scheduled: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * After (re)connecting, settle any registered container that already exited while we were not listening.
+     */
+    private void reconcile() {
+        pending.forEach((containerId, exit) -> {
+            try {
+                InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(containerId).exec().getState();
+                if (state != null && state.getFinishedAt() != null && !state.getFinishedAt().startsWith("0001")
+                        && !Boolean.TRUE.equals(state.getRunning())) {
+                    int exitCode = state.getExitCodeLong() != null ? state.getExitCodeLong().intValue() : 1;
+                    exit.future.complete(new ContainerExit(exitCode, Boolean.TRUE.equals(state.getOOMKilled())));
+                }
+            } catch (Exception e) {
+                log.debug("Inspect during reconcile failed for {}: {}", containerId, e.getMessage());
+            }
+        });
+    }
+
+    private void dispatch(Event event) {
+        if (event.getTime() != null) {
+            lastEventEpochSeconds = Math.max(lastEventEpochSeconds, event.getTime());
+        }
+        String action = event.getAction() != null ? event.getAction() : event.getStatus();
+        if ("oom".equals(action)) {
+            oomKills.computeIfAbsent(event.getId(), id -> new AtomicInteger()).incrementAndGet();
+            synchronized (oomKills) {
+                oomKills.notifyAll();
+            }
+        } else if ("die".equals(action)) {
+            oomKills.remove(event.getId());
+        }
+        PendingExit exit = pending.get(event.getId());
+        if (exit == null) return;
+        if ("oom".equals(action)) {
+            exit.oomKilled = true;
+        } else if ("die".equals(action)) {
+            exit.future.complete(new ContainerExit(parseExitCode(event), exit.oomKilled));
+        }
+    }
+
+    private int parseExitCode(Event event) {
+        try {
+            String exitCode = event.getActor() != null && event.getActor().getAttributes() != null
+                    ? event.getActor().getAttributes().get("exitCode") : null;
+            return exitCode != null ? Integer.parseInt(exitCode) : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private void closeSubscription() {
+        Closeable current = subscription;
+        subscription = null;
+        connected = false;
+        if (current == null) return;
+        try {
+            current.close();
+        } catch (IOException e) {
+            log.debug("Failed to close Docker events subscription: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Callbacks of a replaced subscription are ignored so they cannot flip the connection state.
+     */
+    private class EventCallback extends ResultCallback.Adapter<Event> {
+        @Override
+        public void onStart(Closeable stream) {
+            super.onStart(stream);
+            if (subscription != this) return;
+            connected = true;
+            log.info("Subscribed to Docker container events");
+            // Inspect off the stream thread so events keep flowing while we catch up
+            try {
+                reconnectScheduler.execute(DockerEventMonitor.this::reconcile);
+            } catch (Exception e) {
+                log.debug("Reconcile not scheduled: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public void onNext(Event event) {
+            dispatch(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.warn("Docker events stream failed: {}", throwable.getMessage());
+            super.onError(throwable);
+            if (subscription == this) scheduleReconnect();
+        }
+
+        @Override
+        public void onComplete() {
+            super.onComplete();
+            if (running && subscription == this) {
+                log.info("Docker events stream closed, reconnecting");
+                scheduleReconnect();
+            }
+        }
+    }
+}
@@ -2,9 +2,14 @@ package com.codejam.execution.service;
 
 import com.codejam.commons.exception.CustomException;
 import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.BatchExecutionResult;
+import com.codejam.execution.dto.BatchSubmission;
 import com.codejam.execution.dto.CodeSubmission;
 import com.codejam.execution.dto.ExecutionResult;
 import com.codejam.execution.dto.ExecutionStatus;
+import com.codejam.execution.dto.TestCase;
+import com.codejam.execution.dto.TestCaseResult;
+import com.codejam.execution.dto.Verdict;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.CreateContainerResponse;
@@ -13,14 +18,26 @@ import com.github.dockerjava.api.exception.NotModifiedException;
 import com.github.dockerjava.api.model.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.springframework.http.HttpStatus;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,89 +46,507 @@ import java.util.regex.Pattern;
 @RequiredArgsConstructor
 public class DockerExecutor implements CodeExecutor {
 
+    static final String SANDBOX_LABEL = "codejam.sandbox";
+    // Compiled output lives on the container's own layer so it can be archived out and copied back in
+    private static final String COMPILE_OUTPUT_DIR = "/workspace/out";
+
     private static final int MAX_RETRIES = 3;
     private static final long BASE_RETRY_DELAY_MS = 500;
     private static final int LOG_TIMEOUT_SECONDS = 10;
     private static final int MAX_CODE_SIZE = 100_000;
     private static final int MAX_OUTPUT_SIZE = 1024 * 1024;
+    private static final long OOM_EVENT_GRACE_MS = 250;
     private static final Pattern JAVA_CLASS_PATTERN = Pattern.compile("public\\s+class\\s+(\\w+)");
+    private static final Pattern JAVA_TYPE_PATTERN = Pattern.compile("\\b(?:class|interface|enum|record)\\s+(\\w+)");
     private static final Pattern SAFE_IDENTIFIER = Pattern.compile("^[a-zA-Z][a-zA-Z0-9_]{0,50}$");
 
     private final DockerClient dockerClient;
     private final MicroserviceConfig microserviceConfig;
     private final ExecutorService executorService;
-
-    private record ContainerContext(String containerId, Path sourceFile) {}
+    private final DockerContainerPool containerPool;
+    private final DockerEventMonitor eventMonitor;
+    private final ExecutionLimiter executionLimiter;
+    private final CompileArtifactCache compileArtifactCache;
+    private final JavaCompilerDaemon compilerDaemon;
+    private final LanguageRegistry languageRegistry;
+
+    private record ContainerContext(String containerId) {}
     private record ExecutionOutput(String stdout, String stderr) {}
+    private record ExecOutcome(int exitCode, ExecutionOutput output) {}
+
+    private static final ExecOutcome NOTHING_COMPILED = new ExecOutcome(0, new ExecutionOutput("", ""));
 
     @Override
     public ExecutionResult execute(CodeSubmission submission) {
-        validateSubmission(submission);
-        Future<ExecutionResult> future = executorService.submit(() -> executeInContainer(submission));
+        LanguageRuntime runtime = validateSubmission(submission);
+        return runWithTimeout(submission.getRoomId(), runtime.wallClockSeconds() + 5,
+                () -> executeInContainer(submission, runtime, null));
+    }
+
+    @Override
+    public ExecutionResult executeStreaming(CodeSubmission submission, ExecutionOutputListener listener) {
+        LanguageRuntime runtime = validateSubmission(submission);
+        return runWithTimeout(submission.getRoomId(), runtime.wallClockSeconds() + 5,
+                () -> executeInContainer(submission, runtime, listener));
+    }
+
+    @Override
+    public BatchExecutionResult executeBatch(BatchSubmission batch) {
+        CodeSubmission submission = batch.toSubmission();
+        LanguageRuntime runtime = validateSubmission(submission);
+        long caseTimeLimitMs = batch.getCaseTimeLimitMs();
+        // Compile budget plus every case at its limit (rounded up to the shell timeout granularity)
+        long timeout = (runtime.isCompiled() ? runtime.compileTimeoutSeconds() : 0)
+                + batch.getTestCases().size() * (caseTimeoutSeconds(caseTimeLimitMs) + 1) + 5;
+        return runWithTimeout(batch.getRoomId(), timeout,
+                () -> executeBatchInContainers(batch, submission, runtime, caseTimeLimitMs));
+    }
+
+    private <T> T runWithTimeout(String roomId, long timeoutSeconds, Callable<T> task) {
+        ExecutionLimiter.Permit containerPermit = executionLimiter.acquireContainer();
+        Future<T> future;
+        try {
+            future = executorService.submit(() -> {
+                try (containerPermit) {
+                    return task.call();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            containerPermit.close();
+            log.warn("Code executor saturated, rejecting run for room {}", roomId);
+            throw new CustomException("EXECUTOR_BUSY", "All execution sandboxes are busy, please retry later", HttpStatus.SERVICE_UNAVAILABLE);
+        }
         try {
-            long timeout = microserviceConfig.getExecutor().getTimeoutSeconds() + 5;
-            return future.get(timeout, TimeUnit.SECONDS);
+            return future.get(timeoutSeconds, TimeUnit.SECONDS);
         } catch (TimeoutException e) {
             future.cancel(true);
-            log.warn("Execution timeout for room {}", submission.getRoomId());
+            log.warn("Execution timeout for room {}", roomId);
             throw new CustomException("EXECUTION_TIMEOUT", "Code execution exceeded time limit", HttpStatus.REQUEST_TIMEOUT);
         } catch (ExecutionException e) {
             Throwable cause = e.getCause();
             if (cause instanceof CustomException ce) throw ce;
-            log.error("Execution failed for room {}", submission.getRoomId(), cause);
+            log.error("Execution failed for room {}", roomId, cause);
             throw new CustomException("EXECUTION_FAILED", "Code execution failed", HttpStatus.INTERNAL_SERVER_ERROR);
         } catch (InterruptedException e) {
+            future.cancel(true);
             Thread.currentThread().interrupt();
             throw new CustomException("EXECUTION_INTERRUPTED", "Execution interrupted", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    private ExecutionResult executeInContainer(CodeSubmission submission) {
+    private ExecutionResult executeInContainer(CodeSubmission submission, LanguageRuntime runtime,
+                                               ExecutionOutputListener listener) {
         long startTime = System.currentTimeMillis();
+        var pooled = containerPool.acquire(submission.getLanguage());
+        if (pooled.isPresent()) {
+            try {
+                return executeStaged(submission, runtime, pooled.get().containerId(), listener, startTime);
+            } finally {
+                containerPool.release(pooled.get());
+            }
+        }
         ContainerContext ctx = null;
         try {
-            ctx = prepareContainer(submission);
+            String fileName = sourceFileName(submission, runtime);
+            boolean fromSource = launchesFromSource(submission, runtime, fileName);
+            String compileCommand = fromSource ? null : compileCommand(runtime, fileName);
+            String artifactKey = compileCommand != null ? artifactKey(submission, runtime, fileName, compileCommand) : null;
+            byte[] artifact = artifactKey != null ? compileArtifactCache.get(artifactKey).orElse(null) : null;
+            String compileOutput = "";
+            if (artifactKey != null && artifact == null) {
+                var compiled = compileWithDaemon(submission, fileName, artifactKey);
+                if (compiled.isPresent() && !compiled.get().succeeded()) {
+                    return compileErrorResult(submission.getRoomId(), compiled.get().exitCode(),
+                            compiled.get().diagnostics(), System.currentTimeMillis() - startTime);
+                }
+                if (compiled.isEmpty()) {
+                    // Compile as its own step so diagnostics and the compile timeout stay apart from the run
+                    ctx = new ContainerContext(createIdleContainer(runtime));
+                    startContainer(ctx.containerId());
+                    return executeStaged(submission, runtime, ctx.containerId(), listener, startTime);
+                }
+                artifact = compiled.get().artifact();
+                compileOutput = compiled.get().diagnostics();
+                if (listener != null && !compileOutput.isEmpty()) {
+                    listener.onOutput(ExecutionOutputListener.Channel.COMPILE, compileOutput);
+                }
+            }
+            String command = singleRunCommand(runtime, fileName, fromSource);
+            ctx = new ContainerContext(createContainer(runtime, command));
+            copySource(ctx.containerId(), fileName, submission.getCode());
+            if (artifact != null) copyArchive(ctx.containerId(), "/workspace", artifact);
+            var exitFuture = eventMonitor.register(ctx.containerId());
+            long runStart = System.currentTimeMillis();
             startContainer(ctx.containerId());
-            int exitCode = awaitCompletion(ctx.containerId(), startTime);
-            ExecutionOutput output = captureOutput(ctx.containerId());
-            return buildResult(submission.getRoomId(), exitCode, output, System.currentTimeMillis() - startTime);
+            OutputCollector follower = listener != null ? followOutput(ctx.containerId(), listener) : null;
+            DockerEventMonitor.ContainerExit exit = awaitCompletion(ctx.containerId(), exitFuture, startTime,
+                    runtime.timeoutSeconds());
+            long runMs = System.currentTimeMillis() - runStart;
+            ExecutionOutput output = follower != null ? drain(follower) : captureOutput(ctx.containerId());
+            ExecutionResult result = buildResult(submission.getRoomId(), exit.exitCode(), output,
+                    System.currentTimeMillis() - startTime);
+            result.setCompileOutput(compileOutput);
+            return applyLimitVerdict(result, runMs, runtime, exit.oomKilled());
         } finally {
             cleanup(ctx);
         }
     }
 
-    private void validateSubmission(CodeSubmission submission) {
-        if (submission.getCode() == null || submission.getCode().trim().isEmpty()) {
-            throw new CustomException("INVALID_CODE", "Code cannot be empty", HttpStatus.BAD_REQUEST);
+    /**
+     * Run in an already started sandbox: copy the source in, compile with its own timeout, then run with the
+     * language's full run timeout. Compiler output is reported separately from the program's stderr.
+     */
+    private ExecutionResult executeStaged(CodeSubmission submission, LanguageRuntime runtime, String containerId,
+                                          ExecutionOutputListener listener, long startTime) {
+        String fileName = sourceFileName(submission, runtime);
+        copySource(containerId, fileName, submission.getCode());
+        boolean fromSource = launchesFromSource(submission, runtime, fileName);
+        ExecOutcome compiled = fromSource ? NOTHING_COMPILED
+                : compileInContainer(containerId, submission, runtime, fileName);
+        String compileOutput = compileOutput(compiled);
+        if (listener != null && !compileOutput.isEmpty()) {
+            listener.onOutput(ExecutionOutputListener.Channel.COMPILE, compileOutput);
         }
-        if (submission.getCode().length() > MAX_CODE_SIZE) {
-            throw new CustomException("CODE_TOO_LARGE", "Code exceeds 100KB limit", HttpStatus.BAD_REQUEST);
+        if (compiled.exitCode() != 0) {
+            return compileErrorResult(submission.getRoomId(), compiled.exitCode(), compileOutput,
+                    System.currentTimeMillis() - startTime);
         }
+        int oomKillsBefore = eventMonitor.oomKills(containerId);
+        long runStart = System.currentTimeMillis();
+        ExecOutcome outcome = execInContainer(containerId, singleRunCommand(runtime, fileName, fromSource), listener,
+                runtime.timeoutSeconds() * 1000 + 1000, true);
+        long runMs = System.currentTimeMillis() - runStart;
+        ExecutionResult result = buildResult(submission.getRoomId(), outcome.exitCode(), outcome.output(),
+                System.currentTimeMillis() - startTime);
+        result.setCompileOutput(compileOutput);
+        boolean oomKilled = oomKilledDuring(containerId, oomKillsBefore, outcome.exitCode(), runMs,
+                runtime.timeoutSeconds() * 1000);
+        return applyLimitVerdict(result, runMs, runtime, oomKilled);
     }
 
-    private ContainerContext prepareContainer(CodeSubmission submission) {
+    /**
+     * Report time and memory limits on a single run with the same rules as test cases
+     * ({@link CaseJudge#limitVerdict}), whichever path ran it. Successful exits are left alone, since the
+     * measured run time includes sandbox overhead the in-sandbox {@code timeout} does not count.
+     */
+    private ExecutionResult applyLimitVerdict(ExecutionResult result, long runMs, LanguageRuntime runtime,
+                                              boolean oomKilled) {
+        int exitCode = result.getExitCode() != null ? result.getExitCode() : 0;
+        if (exitCode == 0) return result;
+        Verdict verdict = CaseJudge.limitVerdict(exitCode, runMs, runtime.timeoutSeconds() * 1000, oomKilled,
+                result.getStderr());
+        if (verdict == Verdict.TIME_LIMIT_EXCEEDED) {
+            result.setStatus(ExecutionStatus.TIMEOUT);
+            result.setErrorMessage("Time limit exceeded");
+            result.setVerdict(verdict);
+        } else if (verdict == Verdict.MEMORY_LIMIT_EXCEEDED) {
+            result.setErrorMessage("Memory limit exceeded");
+            result.setVerdict(verdict);
+        }
+        return result;
+    }
+
+    /**
+     * Whether the OOM killer fired in a long-lived sandbox while an exec ran. Only SIGKILL exits before the
+     * time limit are checked. The oom event can trail the exec's exit, so it is given a short grace period;
+     * while the events stream is down the container's OOMKilled state stands in.
+     */
+    private boolean oomKilledDuring(String containerId, int oomKillsBefore, int exitCode, long elapsedMs,
+                                    long timeLimitMs) {
+        if (exitCode != 137 || elapsedMs >= timeLimitMs) return false;
+        if (eventMonitor.isConnected()) {
+            return eventMonitor.awaitOomKill(containerId, oomKillsBefore, OOM_EVENT_GRACE_MS);
+        }
         try {
-            Path sourceFile = createSourceFile(submission);
-            String containerId = createContainer(submission, sourceFile);
-            return new ContainerContext(containerId, sourceFile);
+            InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(containerId).exec().getState();
+            return state != null && Boolean.TRUE.equals(state.getOOMKilled());
+        } catch (Exception e) {
+            log.debug("Inspect for OOM state failed for {}: {}", containerId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Judge the suite in one or more sandboxes. The first shard uses the run's own container permit;
+     * extra shards are only started for permits that are free right now, so sharding scales with spare
+     * capacity and never queues behind other runs.
+     */
+    private BatchExecutionResult executeBatchInContainers(BatchSubmission batch, CodeSubmission submission,
+                                                          LanguageRuntime runtime, long caseTimeLimitMs) {
+        long startTime = System.currentTimeMillis();
+        ShardedBatch sharded = new ShardedBatch(batch);
+        List<ExecutionLimiter.Permit> shardPermits = reserveShardPermits(batch.getTestCases().size());
+        try {
+            sharded.run(executorService, shardPermits.size() + 1,
+                    (shardIndex, caseIndexes, state) -> runShard(submission, runtime, caseTimeLimitMs, caseIndexes, state));
+        } finally {
+            shardPermits.forEach(ExecutionLimiter.Permit::close);
+        }
+        return sharded.toResult(System.currentTimeMillis() - startTime);
+    }
+
+    private List<ExecutionLimiter.Permit> reserveShardPermits(int caseCount) {
+        MicroserviceConfig.BatchConfig config = microserviceConfig.getExecutor().getBatch();
+        int wanted = Math.min(config.getMaxShards(),
+                (caseCount + config.getMinCasesPerShard() - 1) / Math.max(1, config.getMinCasesPerShard()));
+        List<ExecutionLimiter.Permit> permits = new ArrayList<>();
+        while (permits.size() + 1 < wanted) {
+            var permit = executionLimiter.tryAcquireContainer();
+            if (permit.isEmpty()) break;
+            permits.add(permit.get());
+        }
+        return permits;
+    }
+
+    /**
+     * Judge a shard's cases in one sandbox: source and the shard's case inputs are copied in with a single
+     * archive, the program is compiled once, and each case is a separate exec with stdin redirected from a file.
+     */
+    private void runShard(CodeSubmission submission, LanguageRuntime runtime, long caseTimeLimitMs,
+                          List<Integer> caseIndexes, ShardedBatch state) {
+        var pooled = containerPool.acquire(submission.getLanguage());
+        ContainerContext ctx = null;
+        try {
+            String containerId;
+            if (pooled.isPresent()) {
+                containerId = pooled.get().containerId();
+            } else {
+                ctx = new ContainerContext(createIdleContainer(runtime));
+                containerId = ctx.containerId();
+                startContainer(containerId);
+            }
+
+            String fileName = sourceFileName(submission, runtime);
+            List<TestCase> cases = state.batch().getTestCases();
+            Map<String, byte[]> files = new LinkedHashMap<>();
+            files.put(fileName, submission.getCode().getBytes(StandardCharsets.UTF_8));
+            for (int index : caseIndexes) {
+                String stdin = cases.get(index).getStdin();
+                files.put(caseInputPath(index), (stdin != null ? stdin : "").getBytes(StandardCharsets.UTF_8));
+            }
+            copyFiles(containerId, files);
+
+            if (runtime.isCompiled()) {
+                ExecOutcome compiled = compileInContainer(containerId, submission, runtime, fileName);
+                if (compiled.exitCode() != 0) {
+                    state.compileFailed(compileOutput(compiled));
+                    return;
+                }
+                state.compiled(compileOutput(compiled));
+            }
+
+            for (int index : caseIndexes) {
+                if (state.shouldStop()) return;
+                state.record(index, runCase(containerId, runtime, fileName, index, cases.get(index), state.batch(),
+                        caseTimeLimitMs));
+            }
+        } finally {
+            pooled.ifPresent(containerPool::release);
+            cleanup(ctx);
+        }
+    }
+
+    private TestCaseResult runCase(String containerId, LanguageRuntime runtime, String fileName,
+                                   int index, TestCase testCase, BatchSubmission batch, long caseTimeLimitMs) {
+        String timeout = "timeout -s KILL " + caseTimeoutSeconds(caseTimeLimitMs);
+        String command = runCommand(runtime, fileName, timeout) + " < /workspace/" + caseInputPath(index);
+        // Output is judged as it streams rather than buffered, so it is not capped; the time limit bounds it
+        CaseJudge judge = new CaseJudge(index, testCase, batch);
+        int oomKillsBefore = eventMonitor.oomKills(containerId);
+        long caseStart = System.currentTimeMillis();
+        ExecOutcome outcome = execInContainer(containerId, command, judge, caseTimeLimitMs + 5000, false);
+        long elapsed = System.currentTimeMillis() - caseStart;
+        boolean oomKilled = oomKilledDuring(containerId, oomKillsBefore, outcome.exitCode(), elapsed, caseTimeLimitMs);
+        return judge.result(outcome.exitCode(), elapsed, caseTimeLimitMs, oomKilled);
+    }
+
+    /**
+     * Compile in a running sandbox, or copy in the cached artifact for identical source and toolchain instead.
+     * Interpreted languages and cache hits return a clean, empty outcome. Sandbox compiles take a compile slot
+     * and are killed at the language's compile timeout.
+     */
+    private ExecOutcome compileInContainer(String containerId, CodeSubmission submission, LanguageRuntime runtime,
+                                           String fileName) {
+        String compileCommand = compileCommand(runtime, fileName);
+        if (compileCommand == null) return NOTHING_COMPILED;
+        String key = artifactKey(submission, runtime, fileName, compileCommand);
+        var artifact = compileArtifactCache.get(key);
+        if (artifact.isPresent()) {
+            copyArchive(containerId, "/workspace", artifact.get());
+            return NOTHING_COMPILED;
+        }
+        var daemon = compileWithDaemon(submission, fileName, key);
+        if (daemon.isPresent()) {
+            JavaCompilerDaemon.Compilation compilation = daemon.get();
+            if (compilation.succeeded()) {
+                copyArchive(containerId, "/workspace", compilation.artifact());
+            }
+            return new ExecOutcome(compilation.exitCode(), new ExecutionOutput("", compilation.diagnostics()));
+        }
+        ExecOutcome compiled;
+        try (ExecutionLimiter.Permit ignored = executionLimiter.acquireCompile()) {
+            compiled = execInContainer(containerId, compileCommand, null,
+                    runtime.compileTimeoutSeconds() * 1000 + 1000, true);
+        }
+        if (compiled.exitCode() == 0) {
+            storeArtifact(containerId, key);
+        } else if (compiled.exitCode() == 137 || compiled.exitCode() == 124) {
+            String message = "Compilation exceeded the " + runtime.compileTimeoutSeconds() + "s compile time limit\n";
+            compiled = new ExecOutcome(compiled.exitCode(),
+                    new ExecutionOutput(compiled.output().stdout(), compiled.output().stderr() + message));
+        }
+        return compiled;
+    }
+
+    /**
+     * Compile Java with the warm compiler daemon, caching successful output like a sandbox compile.
+     * @return empty for other languages or when the daemon is unavailable, so the sandbox runs javac itself
+     */
+    private Optional<JavaCompilerDaemon.Compilation> compileWithDaemon(CodeSubmission submission, String fileName,
+                                                                      String key) {
+        if (submission.getLanguage() != CodeSubmission.Language.JAVA) return Optional.empty();
+        var compiled = compilerDaemon.compile(fileName, submission.getCode());
+        compiled.filter(JavaCompilerDaemon.Compilation::succeeded)
+                .ifPresent(compilation -> compileArtifactCache.put(key, compilation.artifact()));
+        return compiled;
+    }
+
+    private String artifactKey(CodeSubmission submission, LanguageRuntime runtime, String fileName,
+                               String compileCommand) {
+        return compileArtifactCache.key(runtime.image(), compileCommand, fileName, submission.getCode());
+    }
+
+    /**
+     * Archive the sandbox's compile output into the cache. Failures only cost a future cache hit.
+     */
+    private void storeArtifact(String containerId, String key) {
+        try (InputStream archive = retryOnTimeout("archive",
+                () -> dockerClient.copyArchiveFromContainerCmd(containerId, COMPILE_OUTPUT_DIR).exec())) {
+            compileArtifactCache.put(key, archive.readAllBytes());
+        } catch (Exception e) {
+            log.debug("Failed to cache compile output of container {}: {}", containerId, e.getMessage());
+        }
+    }
+
+    private long caseTimeoutSeconds(long caseTimeLimitMs) {
+        return (caseTimeLimitMs + 999) / 1000;
+    }
+
+    private String caseInputPath(int index) {
+        return "cases/" + index + ".in";
+    }
+
+    private String sourceFileName(CodeSubmission submission, LanguageRuntime runtime) {
+        String ext = runtime.extension();
+        if (submission.getLanguage() == CodeSubmission.Language.JAVA) {
+            return extractJavaClassName(submission.getCode()) + ext;
+        }
+        return "main" + ext;
+    }
+
+    /**
+     * Stream the source into the container as an in-memory tar. It lands in /workspace on the container's
+     * own writable layer (tmpfs mounts are not visible to the archive API before start), so nothing touches
+     * the host filesystem and the Docker daemon may be remote.
+     */
+    private void copySource(String containerId, String fileName, String code) {
+        copyFiles(containerId, Map.of(fileName, code.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Copy files, keyed by path relative to /workspace, into the container as one archive.
+     */
+    private void copyFiles(String containerId, Map<String, byte[]> files) {
+        copyArchive(containerId, "/", buildArchive("workspace/", files));
+    }
+
+    private void copyArchive(String containerId, String remotePath, byte[] archive) {
+        retryOnTimeout("copy", () -> {
+            dockerClient.copyArchiveToContainerCmd(containerId)
+                    .withTarInputStream(new ByteArrayInputStream(archive))
+                    .withRemotePath(remotePath)
+                    .exec();
+            return null;
+        });
+    }
+
+    /**
+     * Tar the files, keyed by path relative to {@code root}, with their parent directories.
+     */
+    static byte[] buildArchive(String root, Map<String, byte[]> files) {
+        int size = files.values().stream().mapToInt(content -> content.length + 1024).sum();
+        try (var bytes = new ByteArrayOutputStream(size + 1024);
+             var tar = new TarArchiveOutputStream(bytes)) {
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            Set<String> dirs = new HashSet<>();
+            putDirectory(tar, root, dirs);
+            for (var entry : files.entrySet()) {
+                String path = root + entry.getKey();
+                int slash = path.indexOf('/', root.length());
+                while (slash > 0) {
+                    putDirectory(tar, path.substring(0, slash + 1), dirs);
+                    slash = path.indexOf('/', slash + 1);
+                }
+                byte[] content = entry.getValue();
+                TarArchiveEntry file = new TarArchiveEntry(path);
+                file.setSize(content.length);
+                file.setMode(0644);
+                tar.putArchiveEntry(file);
+                tar.write(content);
+                tar.closeArchiveEntry();
+            }
+            tar.finish();
+            return bytes.toByteArray();
         } catch (IOException e) {
-            log.error("Failed to create source file for room {}", submission.getRoomId(), e);
             throw new CustomException("IO_ERROR", "Failed to prepare execution environment", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    private Path createSourceFile(CodeSubmission submission) throws IOException {
-        String ext = submission.getLanguage().getExtension();
-        if (submission.getLanguage() == CodeSubmission.Language.JAVA) {
-            String className = extractJavaClassName(submission.getCode());
-            Path dir = Files.createTempDirectory("codejam-");
-            Path file = dir.resolve(className + ext);
-            Files.writeString(file, submission.getCode());
-            return file;
+    private static void putDirectory(TarArchiveOutputStream tar, String path, Set<String> written) throws IOException {
+        if (!written.add(path)) return;
+        TarArchiveEntry dir = new TarArchiveEntry(path);
+        dir.setMode(0755);
+        tar.putArchiveEntry(dir);
+        tar.closeArchiveEntry();
+    }
+
+    /**
+     * @param stopOnOverflow stop the whole container when output exceeds the cap; otherwise output is
+     *                       forwarded to the listener uncapped, which bounds what it keeps itself, so a shared
+     *                       sandbox stays usable for the next exec and bounded only by the exec's time limit
+     */
+    private ExecOutcome execInContainer(String containerId, String command, ExecutionOutputListener listener,
+                                        long timeoutMs, boolean stopOnOverflow) {
+        String execId = retryOnTimeout("exec", () -> dockerClient.execCreateCmd(containerId)
+                .withCmd("sh", "-c", command)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec()
+                .getId());
+        OutputCollector collector = new OutputCollector(containerId, listener, stopOnOverflow);
+        dockerClient.execStartCmd(execId).withDetach(false).withTty(false).exec(collector);
+        try {
+            if (!collector.awaitCompletion(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new CustomException("EXECUTION_TIMEOUT", "Execution timed out", HttpStatus.REQUEST_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("EXECUTION_INTERRUPTED", "Execution interrupted", HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            closeQuietly(collector);
         }
-        Path file = Files.createTempFile("codejam-", ext);
-        Files.writeString(file, submission.getCode());
-        return file;
+        Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+        return new ExecOutcome(exitCode != null ? exitCode.intValue() : 1, collector.toOutput());
+    }
+
+    private LanguageRuntime validateSubmission(CodeSubmission submission) {
+        if (submission.getCode() == null || submission.getCode().trim().isEmpty()) {
+            throw new CustomException("INVALID_CODE", "Code cannot be empty", HttpStatus.BAD_REQUEST);
+        }
+        if (submission.getCode().length() > MAX_CODE_SIZE) {
+            throw new CustomException("CODE_TOO_LARGE", "Code exceeds 100KB limit", HttpStatus.BAD_REQUEST);
+        }
+        return languageRegistry.get(submission.getLanguage());
     }
 
     private String extractJavaClassName(String code) {
@@ -125,14 +560,14 @@ public class DockerExecutor implements CodeExecutor {
         return className;
     }
 
-    private String createContainer(CodeSubmission submission, Path sourceFile) {
-        String image = submission.getLanguage().getDockerImage();
-        String command = buildCommand(submission.getLanguage(), sourceFile.getFileName().toString());
-        HostConfig hostConfig = buildHostConfig(sourceFile.getParent());
+    private String createContainer(LanguageRuntime runtime, String command) {
+        String image = runtime.image();
+        HostConfig hostConfig = sandboxHostConfig(runtime);
         return retryOnTimeout("create", () -> {
             CreateContainerResponse container = dockerClient.createContainerCmd(image)
                     .withCmd("sh", "-c", command)
                     .withHostConfig(hostConfig)
+                    .withLabels(Map.of(SANDBOX_LABEL, "true"))
                     .withAttachStdin(false)
                     .withAttachStdout(true)
                     .withAttachStderr(true)
@@ -142,9 +577,30 @@ public class DockerExecutor implements CodeExecutor {
         });
     }
 
-    private HostConfig buildHostConfig(Path workDir) {
-        long memoryBytes = microserviceConfig.getExecutor().getMemoryLimitMB() * 1024 * 1024;
-        double cpuLimit = Math.min(microserviceConfig.getExecutor().getCpuLimit(), 1.0);
+    /**
+     * A sandbox that idles until commands are exec'd into it, like a pooled container.
+     */
+    private String createIdleContainer(LanguageRuntime runtime) {
+        HostConfig hostConfig = sandboxHostConfig(runtime);
+        String image = runtime.image();
+        return retryOnTimeout("create", () -> dockerClient.createContainerCmd(image)
+                .withCmd(DockerContainerPool.IDLE_COMMAND)
+                .withHostConfig(hostConfig)
+                .withLabels(Map.of(SANDBOX_LABEL, "true"))
+                .withAttachStdin(false)
+                .withAttachStdout(false)
+                .withAttachStderr(false)
+                .withTty(false)
+                .exec()
+                .getId());
+    }
+
+    /**
+     * Resource and isolation limits shared by cold containers and pooled containers.
+     */
+    static HostConfig sandboxHostConfig(LanguageRuntime runtime) {
+        long memoryBytes = runtime.memoryLimitMB() * 1024 * 1024;
+        double cpuLimit = Math.min(runtime.cpuLimit(), 1.0);
         return HostConfig.newHostConfig()
                 .withMemory(memoryBytes)
                 .withCpuQuota((long) (cpuLimit * 100000))
@@ -152,8 +608,7 @@ public class DockerExecutor implements CodeExecutor {
                 .withPidsLimit(50L)
                 .withNetworkMode("none")
                 .withSecurityOpts(List.of("no-new-privileges"))
-                .withTmpFs(Map.of("/tmp", "rw,exec,nosuid,size=100m"))
-                .withBinds(new Bind(workDir.toString(), new Volume("/workspace"), AccessMode.ro));
+                .withTmpFs(Map.of("/tmp", "rw,exec,nosuid,size=100m"));
     }
 
     private void startContainer(String containerId) {
@@ -168,110 +623,278 @@ public class DockerExecutor implements CodeExecutor {
         });
     }
 
-    private int awaitCompletion(String containerId, long startTime) {
-        long timeoutSeconds = microserviceConfig.getExecutor().getTimeoutSeconds();
+    /**
+     * Wait for the container to exit. Normally completed by the shared Docker events subscription;
+     * if that is down, falls back to the wait API and finally a single inspect.
+     */
+    private DockerEventMonitor.ContainerExit awaitCompletion(String containerId,
+                                                             CompletableFuture<DockerEventMonitor.ContainerExit> exitFuture,
+                                                             long startTime, long timeoutSeconds) {
+        if (!eventMonitor.isConnected()) {
+            return awaitWithWaitCommand(containerId, timeoutSeconds);
+        }
+        long remainingMs = Math.max(startTime + timeoutSeconds * 1000 - System.currentTimeMillis(), 0);
+        try {
+            return exitFuture.get(remainingMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            forceStop(containerId);
+            throw new CustomException("EXECUTION_TIMEOUT", "Execution timed out", HttpStatus.REQUEST_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("EXECUTION_INTERRUPTED", "Execution interrupted", HttpStatus.INTERNAL_SERVER_ERROR);
+        } catch (ExecutionException | CancellationException e) {
+            log.warn("Exit event unavailable for container {}, inspecting", containerId);
+            return inspectExit(containerId);
+        }
+    }
+
+    private DockerEventMonitor.ContainerExit awaitWithWaitCommand(String containerId, long timeoutSeconds) {
         try {
             Integer exitCode = dockerClient.waitContainerCmd(containerId)
                     .exec(new com.github.dockerjava.api.command.WaitContainerResultCallback())
                     .awaitStatusCode(timeoutSeconds, TimeUnit.SECONDS);
-            if (exitCode != null) return exitCode;
+            if (exitCode != null) return new DockerEventMonitor.ContainerExit(exitCode, false);
         } catch (Exception e) {
-            log.warn("Wait failed for container {}, falling back to polling", containerId);
+            log.warn("Wait failed for container {}, inspecting", containerId);
         }
-        return pollCompletion(containerId, startTime, timeoutSeconds);
+        return inspectExit(containerId);
     }
 
-    private int pollCompletion(String containerId, long startTime, long timeoutSeconds) {
-        long deadline = startTime + (timeoutSeconds * 1000);
-        long delay = 200;
-        while (System.currentTimeMillis() < deadline) {
-            try {
-                InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(containerId).exec().getState();
-                if (state != null && !Boolean.TRUE.equals(state.getRunning())) {
-                    return state.getExitCodeLong() != null ? state.getExitCodeLong().intValue() : 1;
-                }
-            } catch (Exception e) {
-                log.debug("Inspect failed: {}", e.getMessage());
+    private DockerEventMonitor.ContainerExit inspectExit(String containerId) {
+        try {
+            InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(containerId).exec().getState();
+            if (state != null && !Boolean.TRUE.equals(state.getRunning())) {
+                int exitCode = state.getExitCodeLong() != null ? state.getExitCodeLong().intValue() : 1;
+                return new DockerEventMonitor.ContainerExit(exitCode, Boolean.TRUE.equals(state.getOOMKilled()));
             }
-            sleep(delay);
-            delay = Math.min(delay * 2, 2000);
+        } catch (Exception e) {
+            log.debug("Inspect failed: {}", e.getMessage());
         }
         forceStop(containerId);
         throw new CustomException("EXECUTION_TIMEOUT", "Execution timed out", HttpStatus.REQUEST_TIMEOUT);
     }
 
-    private String buildCommand(CodeSubmission.Language lang, String fileName) {
-        String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
-        String binary = "/tmp/" + baseName;
-        return switch (lang) {
-            case JAVASCRIPT -> "cd /workspace && timeout 30s node " + fileName + " </dev/null";
-            case PYTHON -> "cd /workspace && timeout 30s python " + fileName + " </dev/null";
-            case JAVA -> String.format("cd /workspace && javac -d /tmp %s && cd /tmp && timeout 30s java -Djava.awt.headless=true -XX:+UseSerialGC %s </dev/null", fileName, baseName);
-//            case CPP -> String.format("cd /workspace && g++ -O2 -o %s %s && timeout 30s %s </dev/null", binary, fileName, binary);
-//            case C -> String.format("cd /workspace && gcc -O2 -o %s %s && timeout 30s %s </dev/null", binary, fileName, binary);
-//            case GO -> "cd /workspace && GOTMPDIR=/tmp timeout 30s go run " + fileName + " </dev/null";
-//            case RUST -> String.format("cd /workspace && rustc -O %s -o %s && timeout 30s %s </dev/null", fileName, binary, binary);
-        };
+    /**
+     * Single Java runs in SOURCE mode compile in memory and run in the same JVM, so they have no compile step.
+     * The source launcher runs the first type in the file, so code that declares helpers before the main
+     * class still goes through javac.
+     */
+    private boolean launchesFromSource(CodeSubmission submission, LanguageRuntime runtime, String fileName) {
+        if (submission.getLanguage() != CodeSubmission.Language.JAVA || runtime.sourceRunCommand() == null
+                || microserviceConfig.getExecutor().getJavaRuntime().getLaunchMode() != MicroserviceConfig.JavaLaunchMode.SOURCE) {
+            return false;
+        }
+        Matcher matcher = JAVA_TYPE_PATTERN.matcher(submission.getCode());
+        return matcher.find() && fileName.equals(matcher.group(1) + runtime.extension());
     }
 
-    private ExecutionOutput captureOutput(String containerId) {
-        try (var stdout = new ByteArrayOutputStream(); var stderr = new ByteArrayOutputStream()) {
-            CompletableFuture<Void> logCapture = new CompletableFuture<>();
+    /**
+     * The run step of a single (non-batch) run, after any compile step.
+     */
+    private String singleRunCommand(LanguageRuntime runtime, String fileName, boolean fromSource) {
+        String timeout = "timeout " + runtime.timeoutSeconds() + "s";
+        String template = fromSource ? runtime.sourceRunCommand() : runtime.runCommand();
+        return expand(template, fileName, timeout) + " </dev/null";
+    }
 
+    /**
+     * @return the compile step, or null for interpreted languages
+     */
+    private String compileCommand(LanguageRuntime runtime, String fileName) {
+        if (!runtime.isCompiled()) return null;
+        return expand(runtime.compileCommand(), fileName, "timeout -s KILL " + runtime.compileTimeoutSeconds() + "s");
+    }
+
+    private String runCommand(LanguageRuntime runtime, String fileName, String timeout) {
+        return expand(runtime.runCommand(), fileName, timeout);
+    }
+
+    /**
+     * Fill in a registry command template for one source file.
+     */
+    private String expand(String template, String fileName, String timeout) {
+        MicroserviceConfig.JavaRuntimeConfig java = microserviceConfig.getExecutor().getJavaRuntime();
+        return template
+                .replace("{file}", fileName)
+                .replace("{name}", fileName.substring(0, fileName.lastIndexOf('.')))
+                .replace("{out}", COMPILE_OUTPUT_DIR)
+                .replace("{timeout}", timeout)
+                .replace("{sharedArchive}", sharedArchiveOption("", java.getRuntimeArchive()))
+                .replace("{compilerSharedArchive}", sharedArchiveOption("-J", java.getCompilerArchive()));
+    }
+
+    /**
+     * CDS archive flag when running on the Java runner image, whose archives match its default class path.
+     * Runs from compiled classes change the class path, so they rely on the JDK's default archive instead.
+     */
+    private String sharedArchiveOption(String prefix, String archive) {
+        boolean runnerImage = microserviceConfig.getExecutor().getJavaRuntime().hasRunnerImage();
+        return runnerImage ? prefix + "-XX:SharedArchiveFile=" + archive : "";
+    }
+
+    private ExecutionOutput captureOutput(String containerId) {
+        OutputCollector collector = new OutputCollector(containerId, null, true);
+        try {
             dockerClient.logContainerCmd(containerId)
                     .withStdOut(true)
                     .withStdErr(true)
                     .withFollowStream(false)  // Don't follow, just get all logs
                     .withTimestamps(false)
                     .withSince(0)  // Get all logs from start
-                    .exec(new ResultCallback.Adapter<Frame>() {
-                        @Override
-                        public void onNext(Frame frame) {
-                            try {
-                                byte[] payload = frame.getPayload();
-                                if (payload != null && payload.length > 0) {
-                                    var stream = frame.getStreamType() == StreamType.STDOUT ? stdout : stderr;
-                                    if (stream.size() + payload.length <= MAX_OUTPUT_SIZE) {
-                                        stream.write(payload);
-                                    }
-                                }
-                            } catch (IOException e) {
-                                log.error("Error capturing output", e);
-                            }
-                        }
-
-                        @Override
-                        public void onComplete() {
-                            super.onComplete();
-                            logCapture.complete(null);
-                        }
-
-                        @Override
-                        public void onError(Throwable throwable) {
-                            super.onError(throwable);
-                            log.error("Error in log stream for container {}", containerId, throwable);
-                            logCapture.completeExceptionally(throwable);
-                        }
-                    });
+                    .exec(collector);
 
-            try {
-                logCapture.get(LOG_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-            } catch (TimeoutException e) {
+            if (!collector.awaitCompletion(LOG_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
                 log.warn("Log capture timed out for container {}", containerId);
-            } catch (Exception e) {
-                log.error("Failed waiting for logs", e);
             }
+            return collector.toOutput();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return collector.toOutput();
+        } catch (Exception e) {
+            log.error("Failed to capture output for container {}", containerId, e);
+            return new ExecutionOutput("", "");
+        } finally {
+            closeQuietly(collector);
+        }
+    }
+
+    /**
+     * Attach to a started container's output and forward it to the listener as it arrives.
+     */
+    private OutputCollector followOutput(String containerId, ExecutionOutputListener listener) {
+        OutputCollector collector = new OutputCollector(containerId, listener, true);
+        dockerClient.logContainerCmd(containerId)
+                .withStdOut(true)
+                .withStdErr(true)
+                .withFollowStream(true)
+                .withTimestamps(false)
+                .withSince(0)  // Include anything written before we attached
+                .exec(collector);
+        return collector;
+    }
+
+    private ExecutionOutput drain(OutputCollector collector) {
+        try {
+            if (!collector.awaitCompletion(LOG_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Output stream did not finish for container {}", collector.containerId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly(collector);
+        }
+        return collector.toOutput();
+    }
+
+    /**
+     * Collects stdout/stderr frames from a log or exec stream, capped at {@link #MAX_OUTPUT_SIZE} per stream.
+     * With a listener, frames are forwarded instead of buffered; with {@code stopOnOverflow} the container is
+     * stopped and the stream closed once the cap is reached, otherwise the listener sees all output.
+     */
+    private class OutputCollector extends ResultCallback.Adapter<Frame> {
+        private final String containerId;
+        private final ExecutionOutputListener listener;
+        private final boolean stopOnOverflow;
+        private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        private final ChunkDecoder stdoutDecoder = new ChunkDecoder();
+        private final ChunkDecoder stderrDecoder = new ChunkDecoder();
+        private long streamedBytes;
+        private volatile boolean stopped;
+
+        OutputCollector(String containerId, ExecutionOutputListener listener, boolean stopOnOverflow) {
+            this.containerId = containerId;
+            this.listener = listener;
+            this.stopOnOverflow = stopOnOverflow;
+        }
+
+        @Override
+        public void onNext(Frame frame) {
+            byte[] payload = frame.getPayload();
+            if (payload == null || payload.length == 0 || stopped) return;
+            boolean isStderr = frame.getStreamType() == StreamType.STDERR;
+            if (listener != null) {
+                forward(isStderr, payload);
+                return;
+            }
+            var stream = isStderr ? stderr : stdout;
+            synchronized (stream) {
+                if (stream.size() + payload.length <= MAX_OUTPUT_SIZE) {
+                    stream.writeBytes(payload);
+                }
+            }
+        }
 
-            String stdoutStr = stdout.toString();
-            String stderrStr = stderr.toString();
+        private void forward(boolean isStderr, byte[] payload) {
+            var channel = isStderr ? ExecutionOutputListener.Channel.STDERR : ExecutionOutputListener.Channel.STDOUT;
+            try {
+                streamedBytes += payload.length;
+                if (stopOnOverflow && streamedBytes > MAX_OUTPUT_SIZE) {
+                    listener.onOutput(channel, "\n... (output truncated)");
+                    stop();
+                    return;
+                }
+                String chunk = (isStderr ? stderrDecoder : stdoutDecoder).decode(payload);
+                if (!chunk.isEmpty()) {
+                    listener.onOutput(channel, chunk);
+                }
+            } catch (RuntimeException e) {
+                log.debug("Output listener failed for container {}, stopping: {}", containerId, e.getMessage());
+                stop();
+            }
+        }
 
+        private void stop() {
+            stopped = true;
+            forceStop(containerId);
+            closeQuietly(this);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.error("Error in output stream for container {}", containerId, throwable);
+            super.onError(throwable);
+        }
+
+        ExecutionOutput toOutput() {
+            String stdoutStr;
+            String stderrStr;
+            synchronized (stdout) {
+                stdoutStr = stdout.toString(StandardCharsets.UTF_8);
+            }
+            synchronized (stderr) {
+                stderrStr = stderr.toString(StandardCharsets.UTF_8);
+            }
             log.debug("Captured {} bytes stdout, {} bytes stderr for container {}",
                     stdoutStr.length(), stderrStr.length(), containerId);
-
             return new ExecutionOutput(truncate(stdoutStr), truncate(stderrStr));
-        } catch (Exception e) {
-            log.error("Failed to capture output for container {}", containerId, e);
-            return new ExecutionOutput("", "");
+        }
+    }
+
+    /**
+     * Incremental UTF-8 decoder that carries partial multi-byte sequences over to the next frame.
+     */
+    private static final class ChunkDecoder {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+
+        String decode(byte[] payload) {
+            ByteBuffer in = ByteBuffer.allocate(pending.remaining() + payload.length);
+            in.put(pending).put(payload).flip();
+            CharBuffer out = CharBuffer.allocate(in.remaining() + 1);
+            decoder.decode(in, out, false);
+            pending = in.slice();
+            return out.flip().toString();
+        }
+    }
+
+    private void closeQuietly(ResultCallback<?> callback) {
+        try {
+            callback.close();
+        } catch (IOException e) {
+            log.debug("Failed to close stream callback: {}", e.getMessage());
         }
     }
 
@@ -280,10 +903,24 @@ public class DockerExecutor implements CodeExecutor {
         return output.substring(0, MAX_OUTPUT_SIZE) + "\n... (output truncated)";
     }
 
+    private ExecutionResult compileErrorResult(String roomId, int exitCode, String compileOutput, long execTime) {
+        ExecutionResult result = buildResult(roomId, exitCode, new ExecutionOutput("", ""), execTime);
+        result.setErrorMessage("Compilation failed");
+        result.setCompileOutput(compileOutput);
+        result.setCompileError(true);
+        result.setVerdict(Verdict.COMPILATION_ERROR);
+        return result;
+    }
+
+    private String compileOutput(ExecOutcome compiled) {
+        return compiled.output().stdout() + compiled.output().stderr();
+    }
+
     private ExecutionResult buildResult(String roomId, int exitCode, ExecutionOutput output, long execTime) {
         return ExecutionResult.builder()
                 .roomId(roomId)
                 .status(exitCode == 0 ? ExecutionStatus.SUCCESS : ExecutionStatus.ERROR)
+                .verdict(exitCode == 0 ? Verdict.ACCEPTED : Verdict.RUNTIME_ERROR)
                 .stdout(output.stdout())
                 .stderr(output.stderr())
                 .exitCode(exitCode)
@@ -297,8 +934,10 @@ public class DockerExecutor implements CodeExecutor {
     private <T> T retryOnTimeout(String operation, RetryableAction<T> action) {
         Exception lastException = null;
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
+            try (ExecutionLimiter.Permit ignored = executionLimiter.acquireDockerOperation()) {
                 return action.execute();
+            } catch (CustomException e) {
+                throw e;
             } catch (Exception e) {
                 lastException = e;
                 if (!isSocketTimeout(e) || attempt == MAX_RETRIES) break;
@@ -346,19 +985,15 @@ public class DockerExecutor implements CodeExecutor {
 
     private void cleanup(ContainerContext ctx) {
         if (ctx == null) return;
+        eventMonitor.unregister(ctx.containerId());
+        // A cancelled run arrives here interrupted; clear it so the removal call itself is not aborted
+        boolean interrupted = Thread.interrupted();
         try {
             dockerClient.removeContainerCmd(ctx.containerId()).withForce(true).exec();
         } catch (Exception e) {
             log.warn("Failed to remove container {}", ctx.containerId());
-        }
-        try {
-            Files.deleteIfExists(ctx.sourceFile());
-            Path parent = ctx.sourceFile().getParent();
-            if (parent != null && parent.getFileName().toString().startsWith("codejam-")) {
-                Files.deleteIfExists(parent);
-            }
-        } catch (IOException e) {
-            log.warn("Failed to delete temp files", e);
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
         }
     }
 }
\ No newline at end of file
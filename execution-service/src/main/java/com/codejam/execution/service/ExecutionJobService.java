@@ -0,0 +1,153 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.CodeSubmission;
+import com.codejam.execution.dto.ExecutionJobResponse;
+import com.codejam.execution.dto.ExecutionResult;
+import com.codejam.execution.dto.JobStatus;
+import com.codejam.execution.exception.ExecutionOverloadedException;
+import com.codejam.execution.exception.RateLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts executions as background jobs so request threads return immediately.
+ * Jobs run on a bounded worker pool and finished results are kept for a configurable TTL.
+ */
+@Slf4j
+@Service
+public class ExecutionJobService {
+
+    private final ExecutionService executionService;
+    private final MicroserviceConfig microserviceConfig;
+    private final ExecutorService jobExecutor;
+    private final Map<String, ExecutionJob> jobs = new ConcurrentHashMap<>();
+
+    public ExecutionJobService(ExecutionService executionService,
+                               MicroserviceConfig microserviceConfig,
+                               @Qualifier("executionJobExecutor") ExecutorService jobExecutor) {
+        this.executionService = executionService;
+        this.microserviceConfig = microserviceConfig;
+        this.jobExecutor = jobExecutor;
+    }
+
+    private static final class ExecutionJob {
+        private final String jobId;
+        private final String roomId;
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<ExecutionResult> completion = new CompletableFuture<>();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile String errorMessage;
+        private volatile Instant completedAt;
+
+        private ExecutionJob(String jobId, String roomId) {
+            this.jobId = jobId;
+            this.roomId = roomId;
+        }
+    }
+
+    public ExecutionJobResponse submit(CodeSubmission submission) {
+        executionService.checkAdmission(submission);
+        ExecutionJob job = new ExecutionJob(UUID.randomUUID().toString(), submission.getRoomId());
+        jobs.put(job.jobId, job);
+        // Issued before queueing so a fast job cannot finish before its ticket exists; withdrawn if rejected
+        long ticket = executionService.issueTicket(submission.getRoomId());
+        try {
+            jobExecutor.execute(() -> run(job, submission, ticket));
+        } catch (RejectedExecutionException e) {
+            executionService.withdrawTicket(submission.getRoomId(), ticket);
+            jobs.remove(job.jobId);
+            log.warn("Job queue full, rejecting submission for room {}", submission.getRoomId());
+            throw new CustomException("JOB_QUEUE_FULL", "Execution queue is full, please retry later", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        log.debug("Queued job {} for room {}", job.jobId, job.roomId);
+        return toResponse(job);
+    }
+
+    public ExecutionJobResponse getJob(String jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    /**
+     * Long-poll for a job: completes as soon as the job finishes, or with its current state after {@code waitMs}.
+     */
+    public CompletableFuture<ExecutionJobResponse> awaitJob(String jobId, long waitMs) {
+        ExecutionJob job = findJob(jobId);
+        long wait = Math.min(Math.max(waitMs, 0), microserviceConfig.getJobs().getMaxWaitMs());
+        if (wait == 0 || job.completion.isDone()) {
+            return CompletableFuture.completedFuture(toResponse(job));
+        }
+        return job.completion
+                .handle((result, error) -> job)
+                .completeOnTimeout(job, wait, TimeUnit.MILLISECONDS)
+                .thenApply(this::toResponse);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredJobs() {
+        Instant cutoff = Instant.now().minusSeconds(microserviceConfig.getJobs().getResultTtlSeconds());
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.completedAt != null && job.completedAt.isBefore(cutoff));
+        int evicted = before - jobs.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} expired execution jobs", evicted);
+        }
+    }
+
+    private void run(ExecutionJob job, CodeSubmission submission, long ticket) {
+        job.status = JobStatus.RUNNING;
+        try {
+            complete(job, JobStatus.COMPLETED, executionService.execute(submission, ticket), null);
+        } catch (RateLimitExceededException e) {
+            complete(job, JobStatus.COMPLETED, ExecutionResult.systemError(job.roomId, e.getMessage()), null);
+        } catch (ExecutionOverloadedException e) {
+            complete(job, JobStatus.FAILED, null, e.getMessage());
+        } catch (CustomException e) {
+            complete(job, JobStatus.FAILED, null, e.getCustomMessage());
+        } catch (Exception e) {
+            log.error("Job {} failed for room {}", job.jobId, job.roomId, e);
+            complete(job, JobStatus.FAILED, null, "Code execution failed");
+        }
+    }
+
+    private void complete(ExecutionJob job, JobStatus status, ExecutionResult result, String errorMessage) {
+        job.errorMessage = errorMessage;
+        job.completedAt = Instant.now();
+        job.status = status;
+        job.completion.complete(result);
+        log.debug("Job {} finished with status {}", job.jobId, status);
+    }
+
+    private ExecutionJob findJob(String jobId) {
+        ExecutionJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new CustomException("JOB_NOT_FOUND", "Execution job not found or expired", HttpStatus.NOT_FOUND);
+        }
+        return job;
+    }
+
+    private ExecutionJobResponse toResponse(ExecutionJob job) {
+        return ExecutionJobResponse.builder()
+                .jobId(job.jobId)
+                .roomId(job.roomId)
+                .status(job.status)
+                .result(job.completion.getNow(null))
+                .errorMessage(job.errorMessage)
+                .submittedAt(job.submittedAt)
+                .completedAt(job.completedAt)
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.config.MicroserviceConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission limits for the execution pipeline. Threads are cheap (runs are on virtual threads), so
+ * concurrency is bounded here instead of by pool size: one semaphore caps in-flight Docker API calls,
+ * another caps sandboxes executing at the same time, and a third caps compiles running inside them.
+ */
+@Slf4j
+public class ExecutionLimiter {
+
+    private final Semaphore dockerOperations;
+    private final Semaphore liveContainers;
+    private final Semaphore compiles;
+    private final long acquireTimeoutMs;
+
+    /**
+     * A held permit; closing it releases the permit exactly once.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Semaphore semaphore;
+        private boolean released;
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (released) return;
+            released = true;
+            semaphore.release();
+        }
+    }
+
+    public ExecutionLimiter(MicroserviceConfig.ConcurrencyConfig config, MeterRegistry meterRegistry) {
+        this.dockerOperations = new Semaphore(config.getMaxDockerOperations(), true);
+        this.liveContainers = new Semaphore(config.getMaxLiveContainers(), true);
+        this.compiles = new Semaphore(config.getMaxConcurrentCompiles(), true);
+        this.acquireTimeoutMs = config.getAcquireTimeoutMs();
+        meterRegistry.gauge("execution.limiter.docker.available", dockerOperations, Semaphore::availablePermits);
+        meterRegistry.gauge("execution.limiter.containers.available", liveContainers, Semaphore::availablePermits);
+        meterRegistry.gauge("execution.limiter.compiles.available", compiles, Semaphore::availablePermits);
+        log.info("Execution limits: dockerOperations={}, liveContainers={}, compiles={}",
+                config.getMaxDockerOperations(), config.getMaxLiveContainers(), config.getMaxConcurrentCompiles());
+    }
+
+    /**
+     * Reserve a slot for one running sandbox.
+     * @throws CustomException with 503 when no slot frees up within the acquire timeout
+     */
+    public Permit acquireContainer() {
+        return acquire(liveContainers, "EXECUTOR_BUSY", "All execution sandboxes are busy, please retry later");
+    }
+
+    /**
+     * Take a sandbox slot only if one is free right now.
+     */
+    public Optional<Permit> tryAcquireContainer() {
+        return liveContainers.tryAcquire() ? Optional.of(new Permit(liveContainers)) : Optional.empty();
+    }
+
+    /**
+     * Reserve a slot for one compile step in a sandbox.
+     */
+    public Permit acquireCompile() {
+        return acquire(compiles, "COMPILER_BUSY", "All compile slots are busy, please retry later");
+    }
+
+    /**
+     * Reserve a slot for a single Docker API call.
+     */
+    public Permit acquireDockerOperation() {
+        return acquire(dockerOperations, "DOCKER_BUSY", "Docker daemon is busy, please retry later");
+    }
+
+    private Permit acquire(Semaphore semaphore, String errorType, String message) {
+        try {
+            if (!semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Admission limit reached: {}", errorType);
+                throw new CustomException(errorType, message, HttpStatus.SERVICE_UNAVAILABLE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("EXECUTION_INTERRUPTED", "Execution interrupted", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return new Permit(semaphore);
+    }
+}
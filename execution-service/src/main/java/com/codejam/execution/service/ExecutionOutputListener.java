@@ -0,0 +1,13 @@
+package com.codejam.execution.service;
+
+/**
+ * Receives program output while it is being produced. Calls are made on the thread reading the
+ * output stream, so a slow listener slows the reader down and, in turn, the program writing it.
+ */
+@FunctionalInterface
+public interface ExecutionOutputListener {
+
+    enum Channel { STDOUT, STDERR, COMPILE }
+
+    void onOutput(Channel channel, String chunk);
+}
@@ -0,0 +1,240 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.service.RedisService;
+import com.codejam.commons.util.JsonUtils;
+import com.codejam.commons.util.proxyUtils;
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.CodeSubmission;
+import com.codejam.execution.dto.ExecutionResult;
+import com.codejam.execution.dto.ExecutionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed cache of deterministic execution results (successful runs and compile errors),
+ * keyed by {@link SubmissionFingerprinter#fingerprint}. Lookups go to a local LRU first and then,
+ * if enabled, to Redis so replicas share hits. A successful run is only as deterministic as its source,
+ * so source that visibly uses the clock, randomness, identity hashes, threads or the environment is never
+ * cached. The check is a keyword heuristic over the code outside comments and string literals: it errs
+ * towards skipping the cache, but output that depends on things it cannot see (hash-ordered iteration,
+ * uninitialised memory) may still be replayed within the TTL.
+ */
+@Slf4j
+@Service
+public class ExecutionResultCache {
+
+    private static final String REDIS_PREFIX = "EXEC_RESULT";
+    // Matched against code with comments and string literals blanked out; identifiers are anchored so
+    // names like update() or candidate do not count
+    private static final Pattern NONDETERMINISTIC = Pattern.compile(String.join("|",
+            "\\brandom", "Random\\b", "\\brand\\s*(?:\\(|::)", "\\bsrand\\b", "mt19937", "urandom", "(?i:uuid)",
+            "\\btime\\b", "clock\\b", "chrono", "\\bnow\\b", "nanoTime", "currentTimeMillis", "Instant\\b",
+            "\\bdate\\b", "datetime", "Date(?:Time)?\\b",
+            "hashCode", "HashCode\\b", "\\bid\\s*\\(", "\\bhash\\s*\\(",
+            "\\bthreads?\\b", "Thread\\b", "threading", "\\bgo\\s+(?:func\\b|\\w+\\s*\\()", "\\bspawn\\b",
+            "getpid", "getenv", "\\benviron\\b", "process\\.env\\b"));
+
+    private final MicroserviceConfig microserviceConfig;
+    private final ObjectProvider<RedisService> redisService;
+    private final proxyUtils proxyUtils;
+    private final Map<String, CachedResult> local = new LinkedHashMap<>(256, 0.75f, true);
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    private record CachedResult(ExecutionResult result, long expiresAtMs) {}
+
+    public ExecutionResultCache(MicroserviceConfig microserviceConfig,
+                                ObjectProvider<RedisService> redisService,
+                                proxyUtils proxyUtils,
+                                MeterRegistry meterRegistry) {
+        this.microserviceConfig = microserviceConfig;
+        this.redisService = redisService;
+        this.proxyUtils = proxyUtils;
+        this.localHits = meterRegistry.counter("execution.cache.requests", "result", "hit", "tier", "local");
+        this.redisHits = meterRegistry.counter("execution.cache.requests", "result", "hit", "tier", "redis");
+        this.misses = meterRegistry.counter("execution.cache.requests", "result", "miss", "tier", "none");
+        meterRegistry.gauge("execution.cache.local.size", local, this::localSize);
+    }
+
+    /**
+     * Whether the submission's result may be served from or stored in the cache.
+     */
+    public boolean accepts(CodeSubmission submission) {
+        MicroserviceConfig.CacheConfig config = microserviceConfig.getCache();
+        if (!config.isEnabled()) return false;
+        return !config.isSkipNondeterministic()
+                || !NONDETERMINISTIC.matcher(codeOnly(submission.getCode(), submission.getLanguage())).find();
+    }
+
+    /**
+     * Blank out comments and string literals so words in them do not count as API use. Python f-strings and
+     * JavaScript/Go backtick strings are kept, since they can hold code. Outside Python and JavaScript single
+     * quotes are char literals, only recognised when they close within a few characters so Rust lifetimes
+     * stay code.
+     */
+    static String codeOnly(String code, CodeSubmission.Language language) {
+        boolean python = language == CodeSubmission.Language.PYTHON;
+        boolean quotedStrings = python || language == CodeSubmission.Language.JAVASCRIPT;
+        StringBuilder out = new StringBuilder(code.length());
+        int i = 0;
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            char next = i + 1 < code.length() ? code.charAt(i + 1) : 0;
+            int end;
+            boolean keep = false;
+            if (python ? c == '#' : c == '/' && next == '/') {
+                end = code.indexOf('\n', i);
+                if (end < 0) end = code.length();
+            } else if (!python && c == '/' && next == '*') {
+                end = code.indexOf("*/", i + 2);
+                end = end < 0 ? code.length() : end + 2;
+            } else if (c == '"' || (quotedStrings && c == '\'')) {
+                keep = python && i > 0 && Character.toLowerCase(code.charAt(i - 1)) == 'f';
+                end = literalEnd(code, i, c, Integer.MAX_VALUE);
+            } else if (c == '\'') {
+                end = literalEnd(code, i, c, 4);
+                if (end > i + 1 && code.charAt(end - 1) != '\'') end = i + 1;
+            } else {
+                end = i + 1;
+            }
+            if (keep || end == i + 1) {
+                out.append(code, i, end);
+            } else {
+                out.append(' ');
+            }
+            i = end;
+        }
+        return out.toString();
+    }
+
+    /**
+     * End (exclusive) of the literal opened at {@code start}: its closing quote, the end of the line, or
+     * {@code maxLength} characters on, whichever comes first.
+     */
+    private static int literalEnd(String code, int start, char quote, int maxLength) {
+        int i = start + 1;
+        while (i < code.length() && i - start <= maxLength) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return Math.min(i, code.length());
+    }
+
+    public Optional<ExecutionResult> get(String fingerprint) {
+        MicroserviceConfig.CacheConfig config = microserviceConfig.getCache();
+        if (!config.isEnabled()) return Optional.empty();
+
+        ExecutionResult result = getLocal(fingerprint);
+        if (result != null) {
+            localHits.increment();
+            return Optional.of(copy(result));
+        }
+        if (config.isRedisEnabled()) {
+            result = getRedis(fingerprint);
+            if (result != null) {
+                redisHits.increment();
+                putLocal(fingerprint, result);
+                return Optional.of(copy(result));
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String fingerprint, ExecutionResult result) {
+        MicroserviceConfig.CacheConfig config = microserviceConfig.getCache();
+        if (!config.isEnabled() || !isCacheable(result)) return;
+        ExecutionResult stored = copy(result);
+        stored.setRoomId(null);
+        putLocal(fingerprint, stored);
+        if (config.isRedisEnabled()) {
+            putRedis(fingerprint, stored);
+        }
+    }
+
+    /**
+     * Only outcomes that re-running the same code cannot change are cached.
+     */
+    private boolean isCacheable(ExecutionResult result) {
+        return result != null
+                && (result.getStatus() == ExecutionStatus.SUCCESS
+                    || (result.getStatus() == ExecutionStatus.ERROR && Boolean.TRUE.equals(result.getCompileError())));
+    }
+
+    private ExecutionResult getLocal(String fingerprint) {
+        synchronized (local) {
+            CachedResult cached = local.get(fingerprint);
+            if (cached == null) return null;
+            if (cached.expiresAtMs() < System.currentTimeMillis()) {
+                local.remove(fingerprint);
+                return null;
+            }
+            return cached.result();
+        }
+    }
+
+    private void putLocal(String fingerprint, ExecutionResult result) {
+        MicroserviceConfig.CacheConfig config = microserviceConfig.getCache();
+        long expiresAt = System.currentTimeMillis() + config.getTtlSeconds() * 1000;
+        synchronized (local) {
+            local.put(fingerprint, new CachedResult(result, expiresAt));
+            var eldest = local.keySet().iterator();
+            while (local.size() > config.getLocalMaxEntries() && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private int localSize(Map<String, CachedResult> map) {
+        synchronized (local) {
+            return map.size();
+        }
+    }
+
+    private ExecutionResult getRedis(String fingerprint) {
+        RedisService redis = redisService.getIfAvailable();
+        if (redis == null) return null;
+        try {
+            return JsonUtils.fromJson(redis.get(redisKey(fingerprint)), ExecutionResult.class);
+        } catch (Exception e) {
+            log.debug("Redis cache lookup failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void putRedis(String fingerprint, ExecutionResult result) {
+        RedisService redis = redisService.getIfAvailable();
+        if (redis == null) return;
+        try {
+            redis.set(redisKey(fingerprint), JsonUtils.toJson(result), microserviceConfig.getCache().getTtlSeconds());
+        } catch (Exception e) {
+            log.debug("Redis cache store failed: {}", e.getMessage());
+        }
+    }
+
+    private String redisKey(String fingerprint) {
+        return proxyUtils.generateRedisKey(REDIS_PREFIX, fingerprint);
+    }
+
+    private ExecutionResult copy(ExecutionResult result) {
+        return result.toBuilder().build();
+    }
+}
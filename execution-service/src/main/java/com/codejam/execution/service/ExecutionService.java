@@ -1,34 +1,187 @@
 package com.codejam.execution.service;
 
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.BatchExecutionResult;
+import com.codejam.execution.dto.BatchSubmission;
 import com.codejam.execution.dto.CodeSubmission;
 import com.codejam.execution.dto.ExecutionResult;
+import com.codejam.execution.dto.TestCase;
+import com.codejam.execution.exception.ExecutionOverloadedException;
 import com.codejam.execution.exception.RateLimitExceededException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ExecutionService {
 
     private final CodeExecutor executor;
+    private final ExecutionResultCache resultCache;
+    private final SubmissionFingerprinter fingerprinter;
+    private final SubmissionCoalescer coalescer;
+    private final RoomExecutionTracker roomTracker;
+    private final AdmissionController admissionController;
+    private final MicroserviceConfig microserviceConfig;
+    private final LanguageRegistry languageRegistry;
     
     @Autowired(required = false)
     private Judge0RateLimiter rateLimiter;
 
     public ExecutionResult execute(CodeSubmission submission) {
+        return execute(submission, issueTicket(submission.getRoomId()));
+    }
+
+    /**
+     * Execute with a room ticket taken when the submission was accepted; a newer submission for the
+     * same room cancels this one.
+     */
+    public ExecutionResult execute(CodeSubmission submission, long ticket) {
+        return roomTracker.run(submission.getRoomId(), ticket, () -> executeUncancelled(submission));
+    }
+
+    public ExecutionResult executeStreaming(CodeSubmission submission, long ticket, ExecutionOutputListener listener) {
+        return roomTracker.run(submission.getRoomId(), ticket, () -> executeStreamingUncancelled(submission, listener));
+    }
+
+    /**
+     * Judge a program against its test cases. Batches are not cached or coalesced and do not take part
+     * in room cancellation; they are admitted in the grading lane. Each case
+     * is a separate Judge0 submission, so the provider quota is charged once per case before any is sent.
+     */
+    public BatchExecutionResult executeBatch(BatchSubmission batch) {
+        validateBatch(batch);
+        CodeSubmission submission = batch.toSubmission();
+        return admissionController.run(tenant(submission), () -> {
+            checkRateLimit(submission, batch.getTestCases().size());
+            return executor.executeBatch(batch);
+        });
+    }
+
+    public long issueTicket(String roomId) {
+        return roomTracker.issueTicket(roomId);
+    }
+
+    /**
+     * Take back the ticket of a submission rejected before it was queued, so it does not cancel the room's work.
+     */
+    public void withdrawTicket(String roomId, long ticket) {
+        roomTracker.withdrawTicket(roomId, ticket);
+    }
+
+    /**
+     * Longest the submission may wait for an execution slot before it is shed.
+     */
+    public long maxQueueWaitMs(CodeSubmission submission) {
+        return admissionController.maxQueueWaitMs(submission.getPriority());
+    }
+
+    /**
+     * Shed load before queueing async work; throws {@link ExecutionOverloadedException} when over capacity.
+     */
+    public void checkAdmission(CodeSubmission submission) {
+        admissionController.checkAdmission(submission.getPriority());
+    }
+
+    public boolean cancel(String roomId) {
+        return roomTracker.cancel(roomId);
+    }
+
+    public boolean cancel(String roomId, long ticket) {
+        return roomTracker.cancel(roomId, ticket);
+    }
+
+    private ExecutionResult executeUncancelled(CodeSubmission submission) {
+        String fingerprint = fingerprinter.fingerprint(submission);
+        boolean cacheable = resultCache.accepts(submission);
+        var cached = cacheable ? resultCache.get(fingerprint) : Optional.<ExecutionResult>empty();
+        if (cached.isPresent()) {
+            log.debug("Serving cached result for room: {}", submission.getRoomId());
+            return withRoom(cached.get(), submission.getRoomId());
+        }
+
+        return coalescer.execute(fingerprint, submission.getRoomId(), () -> admissionController.run(tenant(submission), () -> {
+            checkRateLimit(submission);
+            ExecutionResult result = executor.execute(submission);
+            if (cacheable) resultCache.put(fingerprint, result);
+            return result;
+        }));
+    }
+
+    private ExecutionResult executeStreamingUncancelled(CodeSubmission submission, ExecutionOutputListener listener) {
+        var cached = resultCache.accepts(submission)
+                ? resultCache.get(fingerprinter.fingerprint(submission)) : Optional.<ExecutionResult>empty();
+        if (cached.isPresent()) {
+            ExecutionResult result = withRoom(cached.get(), submission.getRoomId());
+            if (result.getCompileOutput() != null && !result.getCompileOutput().isEmpty()) {
+                listener.onOutput(ExecutionOutputListener.Channel.COMPILE, result.getCompileOutput());
+            }
+            if (result.getStdout() != null && !result.getStdout().isEmpty()) {
+                listener.onOutput(ExecutionOutputListener.Channel.STDOUT, result.getStdout());
+            }
+            if (result.getStderr() != null && !result.getStderr().isEmpty()) {
+                listener.onOutput(ExecutionOutputListener.Channel.STDERR, result.getStderr());
+            }
+            return result.toBuilder().stdout(null).stderr(null).build();
+        }
+
+        return admissionController.run(tenant(submission), () -> {
+            checkRateLimit(submission);
+            return executor.executeStreaming(submission, listener);
+        });
+    }
+
+    /**
+     * Enforce batch limits and resolve the per-case time limit so every executor sees the same value.
+     */
+    private void validateBatch(BatchSubmission batch) {
+        MicroserviceConfig.BatchConfig config = microserviceConfig.getExecutor().getBatch();
+        if (batch.getTestCases().size() > config.getMaxCases()) {
+            throw new CustomException("TOO_MANY_CASES", "A batch may contain at most " + config.getMaxCases() + " test cases",
+                    HttpStatus.BAD_REQUEST);
+        }
+        long inputBytes = 0;
+        for (TestCase testCase : batch.getTestCases()) {
+            inputBytes += testCase.getStdin() != null ? testCase.getStdin().length() : 0;
+            inputBytes += testCase.getExpectedOutput() != null ? testCase.getExpectedOutput().length() : 0;
+        }
+        if (inputBytes > config.getMaxInputBytes()) {
+            throw new CustomException("INPUT_TOO_LARGE", "Test case data exceeds the batch size limit", HttpStatus.BAD_REQUEST);
+        }
+        long requested = batch.getCaseTimeLimitMs() != null ? batch.getCaseTimeLimitMs() : config.getDefaultCaseTimeLimitMs();
+        batch.setCaseTimeLimitMs(Math.max(100, Math.min(requested, config.getMaxCaseTimeLimitMs())));
+    }
+
+    private FairScheduler.Tenant tenant(CodeSubmission submission) {
+        String userId = submission.getUserId();
+        return new FairScheduler.Tenant(submission.getRoomId(), userId == null || userId.isBlank() ? null : userId,
+                submission.getPriority());
+    }
+
+    private ExecutionResult withRoom(ExecutionResult result, String roomId) {
+        result.setRoomId(roomId);
+        return result;
+    }
+
+    private void checkRateLimit(CodeSubmission submission) {
+        checkRateLimit(submission, 1);
+    }
+
+    private void checkRateLimit(CodeSubmission submission, int calls) {
         // Check rate limiter before execution
-        if (rateLimiter != null && !rateLimiter.allowExecution(submission.getRoomId())) {
+        if (rateLimiter != null && !rateLimiter.allowExecutions(submission.getRoomId(), calls)) {
             log.warn("Rate limit exceeded for room: {}", submission.getRoomId());
-            throw new RateLimitExceededException("Daily execution limit reached");
+            throw new RateLimitExceededException("Execution limit reached, please try again later");
         }
-
-        return executor.execute(submission);
     }
 
     public Object getSupportedLanguages() {
-        return CodeSubmission.Language.values();
+        return languageRegistry.supportedLanguages();
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.CodeSubmission;
+import com.codejam.execution.dto.ExecutionResult;
+import com.codejam.execution.exception.ExecutionOverloadedException;
+import com.codejam.execution.exception.RateLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs a submission and streams its output to the client as server-sent events:
+ * {@code compile} events with compiler diagnostics, {@code stdout}/{@code stderr} events while the program runs, then a single {@code result}
+ * (or {@code error}) event. Writes to the emitter block when the client is slow, which
+ * back-pressures the container output stream.
+ */
+@Slf4j
+@Service
+public class ExecutionStreamService {
+
+    private static final long EMITTER_GRACE_MS = 15_000;
+
+    private final ExecutionService executionService;
+    private final MicroserviceConfig microserviceConfig;
+    private final ExecutorService jobExecutor;
+    private final LanguageRegistry languageRegistry;
+
+    public ExecutionStreamService(ExecutionService executionService,
+                                  MicroserviceConfig microserviceConfig,
+                                  @Qualifier("executionJobExecutor") ExecutorService jobExecutor,
+                                  LanguageRegistry languageRegistry) {
+        this.executionService = executionService;
+        this.microserviceConfig = microserviceConfig;
+        this.jobExecutor = jobExecutor;
+        this.languageRegistry = languageRegistry;
+    }
+
+    public SseEmitter stream(CodeSubmission submission) {
+        executionService.checkAdmission(submission);
+        long timeoutSeconds = languageRegistry.find(submission.getLanguage())
+                .map(LanguageRuntime::wallClockSeconds)
+                .orElse(microserviceConfig.getExecutor().getTimeoutSeconds());
+        // The run may wait for an execution slot before its wall clock starts
+        long timeoutMs = timeoutSeconds * 1000 + executionService.maxQueueWaitMs(submission) + EMITTER_GRACE_MS;
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        String roomId = submission.getRoomId();
+        // Issued before queueing so a fast run cannot finish before its ticket exists; withdrawn if rejected
+        long ticket = executionService.issueTicket(roomId);
+        try {
+            jobExecutor.execute(() -> run(submission, ticket, emitter));
+        } catch (RejectedExecutionException e) {
+            executionService.withdrawTicket(roomId, ticket);
+            log.warn("Execution queue full, rejecting stream for room {}", roomId);
+            throw new CustomException("JOB_QUEUE_FULL", "Execution queue is full, please retry later", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        // Stop the run when the client goes away or the stream times out; a no-op once it has finished
+        emitter.onTimeout(() -> executionService.cancel(roomId, ticket));
+        emitter.onError(error -> executionService.cancel(roomId, ticket));
+        emitter.onCompletion(() -> executionService.cancel(roomId, ticket));
+        return emitter;
+    }
+
+    private void run(CodeSubmission submission, long ticket, SseEmitter emitter) {
+        try {
+            ExecutionResult result = executionService.executeStreaming(submission, ticket,
+                    (channel, chunk) -> send(emitter, channel.name().toLowerCase(), chunk));
+            send(emitter, "result", result);
+            emitter.complete();
+        } catch (RateLimitExceededException e) {
+            finishWithError(emitter, "RATE_LIMIT_EXCEEDED", e.getMessage());
+        } catch (ExecutionOverloadedException e) {
+            finishWithError(emitter, "OVERLOADED", e.getMessage());
+        } catch (CustomException e) {
+            finishWithError(emitter, e.getErrorType(), e.getCustomMessage());
+        } catch (UncheckedIOException e) {
+            log.debug("Client disconnected from stream for room {}", submission.getRoomId());
+            emitter.completeWithError(e.getCause());
+        } catch (Exception e) {
+            log.error("Streaming execution failed for room {}", submission.getRoomId(), e);
+            finishWithError(emitter, "EXECUTION_FAILED", "Code execution failed");
+        }
+    }
+
+    private void finishWithError(SseEmitter emitter, String errorType, String message) {
+        try {
+            send(emitter, "error", Map.of("errorType", errorType, "message", message));
+            emitter.complete();
+        } catch (UncheckedIOException e) {
+            emitter.completeWithError(e.getCause());
+        }
+    }
+
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.CodeSubmission;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out execution slots by priority lane, and fairly across rooms within a lane using deficit
+ * round-robin. Lanes are served in priority order; a lower lane may only take a slot that is not
+ * reserved for a higher lane's unused reservation. Within a lane each room with waiters gets
+ * {@code quantum} slots per turn, so one busy room cannot starve the others, and rooms and users
+ * (from the gateway's {@code X-User-Id}) are capped on how many runs they may hold at once.
+ */
+@Slf4j
+@Component
+public class FairScheduler {
+
+    private final MicroserviceConfig.AdmissionConfig admissionConfig;
+    private final MicroserviceConfig.FairnessConfig config;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<CodeSubmission.Priority, Lane> lanes = new EnumMap<>(CodeSubmission.Priority.class);
+    private final Map<String, Integer> runningByRoom = new HashMap<>();
+    private final Map<String, Integer> runningByUser = new HashMap<>();
+    private int freeSlots;
+
+    public record Tenant(String roomId, String userId, CodeSubmission.Priority priority) {}
+
+    public enum Outcome { GRANTED, TIMED_OUT, PREEMPTED }
+
+    private static final class Waiter {
+        private final Tenant tenant;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private Outcome outcome;
+
+        private Waiter(Tenant tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    private static final class TenantQueue {
+        private final String roomId;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private int deficit;
+        private boolean inRing;
+        private Gauge depthGauge;
+
+        private TenantQueue(String roomId) {
+            this.roomId = roomId;
+        }
+    }
+
+    private static final class Lane {
+        private final CodeSubmission.Priority priority;
+        private final Map<String, TenantQueue> tenants = new HashMap<>();
+        private final ArrayDeque<TenantQueue> ring = new ArrayDeque<>();
+        private int running;
+
+        private Lane(CodeSubmission.Priority priority) {
+            this.priority = priority;
+        }
+    }
+
+    public FairScheduler(MicroserviceConfig microserviceConfig, MeterRegistry meterRegistry) {
+        this.admissionConfig = microserviceConfig.getAdmission();
+        this.config = admissionConfig.getFairness();
+        this.meterRegistry = meterRegistry;
+        this.freeSlots = admissionConfig.getMaxConcurrent();
+        for (CodeSubmission.Priority priority : CodeSubmission.Priority.values()) {
+            Lane lane = new Lane(priority);
+            lanes.put(priority, lane);
+            meterRegistry.gauge("execution.scheduler.tenants", Tags.of("lane", laneTag(priority)),
+                    lane, this::tenantCount);
+        }
+    }
+
+    /**
+     * Wait for a slot in the tenant's lane and turn. On {@link Outcome#GRANTED} the slot is held
+     * until {@link #release}.
+     */
+    public Outcome acquire(Tenant tenant, long timeoutMs) throws InterruptedException {
+        Waiter waiter = new Waiter(tenant);
+        lock.lock();
+        try {
+            Lane lane = lanes.get(tenant.priority());
+            TenantQueue queue = lane.tenants.computeIfAbsent(tenant.roomId(), roomId -> newTenantQueue(lane, roomId));
+            queue.waiters.addLast(waiter);
+            if (!queue.inRing) {
+                queue.inRing = true;
+                lane.ring.addLast(queue);
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+
+        boolean signalled;
+        try {
+            signalled = waiter.latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            lock.lock();
+            try {
+                if (waiter.outcome == Outcome.GRANTED) {
+                    releaseLocked(tenant);
+                } else if (waiter.outcome == null) {
+                    abandonLocked(waiter);
+                }
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        if (signalled) return waiter.outcome;
+
+        lock.lock();
+        try {
+            // Signalled between the timeout and taking the lock
+            if (waiter.outcome != null) return waiter.outcome;
+            abandonLocked(waiter);
+            return Outcome.TIMED_OUT;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(Tenant tenant) {
+        lock.lock();
+        try {
+            releaseLocked(tenant);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evict the most recently queued waiter from the lowest lane below {@code priority}, to make room
+     * in the queue for higher-priority work.
+     * @return true if a waiter was preempted
+     */
+    public boolean preemptQueued(CodeSubmission.Priority priority) {
+        lock.lock();
+        try {
+            CodeSubmission.Priority[] order = CodeSubmission.Priority.values();
+            for (int i = order.length - 1; i > priority.ordinal(); i--) {
+                Lane lane = lanes.get(order[i]);
+                TenantQueue victim = null;
+                for (TenantQueue queue : lane.tenants.values()) {
+                    if (victim == null || queue.waiters.size() > victim.waiters.size()) {
+                        victim = queue;
+                    }
+                }
+                if (victim == null || victim.waiters.isEmpty()) continue;
+                Waiter waiter = victim.waiters.pollLast();
+                waiter.outcome = Outcome.PREEMPTED;
+                waiter.latch.countDown();
+                retireIfIdle(lane, victim);
+                log.debug("Preempted queued {} run for room {}", order[i], victim.roomId);
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked(Tenant tenant) {
+        freeSlots++;
+        lanes.get(tenant.priority()).running--;
+        decrement(runningByRoom, tenant.roomId());
+        if (tenant.userId() != null) {
+            decrement(runningByUser, tenant.userId());
+        }
+        dispatch();
+    }
+
+    private void abandonLocked(Waiter waiter) {
+        Lane lane = lanes.get(waiter.tenant.priority());
+        TenantQueue queue = lane.tenants.get(waiter.tenant.roomId());
+        if (queue == null) return;
+        queue.waiters.remove(waiter);
+        // The abandoned waiter may have been the one blocking its room's turn
+        dispatch();
+        retireIfIdle(lane, queue);
+    }
+
+    private void dispatch() {
+        for (Lane lane : lanes.values()) {
+            dispatch(lane, reservedAbove(lane.priority));
+            if (freeSlots <= 0) return;
+        }
+    }
+
+    /**
+     * Deficit round-robin over the lane's rooms with waiters: a room at the front of the ring is topped
+     * up with {@code quantum} credits and served until they run out, then moves to the back. Rooms whose
+     * next waiter is over a room or user cap are skipped for this pass.
+     */
+    private void dispatch(Lane lane, int reserved) {
+        ArrayDeque<TenantQueue> ring = lane.ring;
+        int blocked = 0;
+        while (freeSlots > reserved && !ring.isEmpty() && blocked < ring.size()) {
+            TenantQueue queue = ring.peekFirst();
+            Waiter next = queue.waiters.peekFirst();
+            if (next == null) {
+                ring.pollFirst();
+                queue.inRing = false;
+                queue.deficit = 0;
+                retireIfIdle(lane, queue);
+                continue;
+            }
+            if (!canRun(next.tenant)) {
+                ring.addLast(ring.pollFirst());
+                blocked++;
+                continue;
+            }
+            if (queue.deficit <= 0) {
+                queue.deficit += Math.max(1, config.getQuantum());
+            }
+            grant(lane, queue.waiters.pollFirst());
+            queue.deficit--;
+            blocked = 0;
+            if (queue.deficit <= 0 && ring.size() > 1) {
+                ring.addLast(ring.pollFirst());
+            }
+        }
+    }
+
+    /**
+     * Slots held back for higher lanes: the part of each higher lane's reservation it is not using.
+     */
+    private int reservedAbove(CodeSubmission.Priority priority) {
+        int reserved = 0;
+        for (Lane lane : lanes.values()) {
+            if (lane.priority.ordinal() >= priority.ordinal()) break;
+            reserved += Math.max(0, admissionConfig.getLane(lane.priority).getReservedSlots() - lane.running);
+        }
+        return reserved;
+    }
+
+    private boolean canRun(Tenant tenant) {
+        if (config.getMaxRunningPerRoom() > 0
+                && runningByRoom.getOrDefault(tenant.roomId(), 0) >= config.getMaxRunningPerRoom()) {
+            return false;
+        }
+        return tenant.userId() == null || config.getMaxRunningPerUser() <= 0
+                || runningByUser.getOrDefault(tenant.userId(), 0) < config.getMaxRunningPerUser();
+    }
+
+    private void grant(Lane lane, Waiter waiter) {
+        freeSlots--;
+        lane.running++;
+        runningByRoom.merge(waiter.tenant.roomId(), 1, Integer::sum);
+        if (waiter.tenant.userId() != null) {
+            runningByUser.merge(waiter.tenant.userId(), 1, Integer::sum);
+        }
+        waiter.outcome = Outcome.GRANTED;
+        waiter.latch.countDown();
+    }
+
+    private void decrement(Map<String, Integer> counts, String key) {
+        counts.computeIfPresent(key, (k, running) -> running > 1 ? running - 1 : null);
+    }
+
+    private TenantQueue newTenantQueue(Lane lane, String roomId) {
+        TenantQueue queue = new TenantQueue(roomId);
+        if (config.isTenantMetrics()) {
+            queue.depthGauge = Gauge.builder("execution.scheduler.tenant.queue.depth", queue, q -> q.waiters.size())
+                    .tag("room", roomId)
+                    .tag("lane", laneTag(lane.priority))
+                    .register(meterRegistry);
+        }
+        return queue;
+    }
+
+    private void retireIfIdle(Lane lane, TenantQueue queue) {
+        if (queue.inRing || !queue.waiters.isEmpty()) return;
+        lane.tenants.remove(queue.roomId, queue);
+        if (queue.depthGauge != null) {
+            meterRegistry.remove(queue.depthGauge);
+        }
+    }
+
+    private int tenantCount(Lane lane) {
+        lock.lock();
+        try {
+            return lane.tenants.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static String laneTag(CodeSubmission.Priority priority) {
+        return priority.name().toLowerCase();
+    }
+}
@@ -0,0 +1,333 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.config.MicroserviceConfig;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.StreamType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps one long-lived compiler container running {@code CompileServer} from the Java runner image, so
+ * javac is already loaded and JIT-compiled when a submission arrives. Sources are copied into a spool
+ * directory, the request goes over a FIFO inside the container, and class files come back as a tar that
+ * is copied into the run sandbox. The container has no network and is replaced after a number of
+ * compiles or a maximum age so no state outlives a bounded set of submissions.
+ */
+@Slf4j
+public class JavaCompilerDaemon {
+
+    static final String COMPILER_LABEL = "codejam.compiler";
+
+    private static final String SPOOL = "/spool";
+    private static final String REQUEST_FIFO = SPOOL + "/compile.fifo";
+    private static final int MAX_REPLY_SIZE = 256 * 1024;
+
+    private final DockerClient dockerClient;
+    private final MicroserviceConfig microserviceConfig;
+    private final ExecutionLimiter executionLimiter;
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+    private final AtomicBoolean replacing = new AtomicBoolean();
+    private final ExecutorService maintenanceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "compiler-daemon");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer compileTimer;
+    private final Counter unavailable;
+    private final Counter recycled;
+
+    /**
+     * Outcome of a daemon compile. The artifact is the tar of the output directory, as Docker archives it.
+     */
+    public record Compilation(int exitCode, String diagnostics, byte[] artifact) {
+        public boolean succeeded() {
+            return exitCode == 0;
+        }
+    }
+
+    private static final class Generation {
+        private final String containerId;
+        private final long startedAtMs = System.currentTimeMillis();
+        private final AtomicInteger compiles = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private volatile boolean retired;
+
+        private Generation(String containerId) {
+            this.containerId = containerId;
+        }
+    }
+
+    public JavaCompilerDaemon(DockerClient dockerClient, MicroserviceConfig microserviceConfig,
+                              ExecutionLimiter executionLimiter, MeterRegistry meterRegistry) {
+        this.dockerClient = dockerClient;
+        this.microserviceConfig = microserviceConfig;
+        this.executionLimiter = executionLimiter;
+        this.compileTimer = meterRegistry.timer("execution.compiler.daemon.compile");
+        this.unavailable = meterRegistry.counter("execution.compiler.daemon.unavailable");
+        this.recycled = meterRegistry.counter("execution.compiler.daemon.recycled");
+    }
+
+    public void start() {
+        if (!isEnabled()) {
+            log.info("Java compiler daemon disabled");
+            return;
+        }
+        maintenanceExecutor.execute(this::replace);
+    }
+
+    /**
+     * Compile a single Java source file.
+     * @return the compilation, or empty when no warm daemon is available and the caller should run javac itself
+     */
+    public Optional<Compilation> compile(String fileName, String code) {
+        if (!isEnabled()) return Optional.empty();
+        Generation generation = current.get();
+        if (generation == null || generation.retired) {
+            unavailable.increment();
+            return Optional.empty();
+        }
+        generation.inFlight.incrementAndGet();
+        try {
+            if (generation.retired) {
+                unavailable.increment();
+                return Optional.empty();
+            }
+            if (generation.compiles.incrementAndGet() == config().getMaxCompiles()) {
+                log.debug("Compiler daemon {} reached its compile limit, recycling", generation.containerId);
+                maintenanceExecutor.execute(this::replace);
+            }
+            return Optional.of(compileTimer.recordCallable(() -> request(generation, fileName, code)));
+        } catch (Exception e) {
+            log.warn("Compiler daemon request failed, replacing daemon: {}", e.getMessage());
+            unavailable.increment();
+            if (current.compareAndSet(generation, null)) {
+                retire(generation);
+                maintenanceExecutor.execute(this::replace);
+            }
+            return Optional.empty();
+        } finally {
+            if (generation.inFlight.decrementAndGet() == 0 && generation.retired) {
+                remove(generation);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.executor.compiler-daemon.check-interval-ms:30000}")
+    public void maintain() {
+        Generation generation = current.get();
+        if (!isEnabled()) {
+            if (generation != null && current.compareAndSet(generation, null)) retire(generation);
+            return;
+        }
+        if (generation == null) {
+            maintenanceExecutor.execute(this::replace);
+        } else if (!isRunning(generation.containerId)) {
+            log.warn("Compiler daemon {} is not running, replacing", generation.containerId);
+            if (current.compareAndSet(generation, null)) retire(generation);
+            maintenanceExecutor.execute(this::replace);
+        } else if (System.currentTimeMillis() - generation.startedAtMs > config().getMaxAgeSeconds() * 1000) {
+            maintenanceExecutor.execute(this::replace);
+        }
+    }
+
+    public void shutdown() {
+        maintenanceExecutor.shutdownNow();
+        Generation generation = current.getAndSet(null);
+        if (generation != null) remove(generation);
+        log.info("Java compiler daemon shut down");
+    }
+
+    private Compilation request(Generation generation, String fileName, String code) throws Exception {
+        String id = UUID.randomUUID().toString();
+        String dir = SPOOL + "/" + id;
+        byte[] archive = DockerExecutor.buildArchive("spool/" + id + "/",
+                Map.of(fileName, code.getBytes(StandardCharsets.UTF_8)));
+        dockerOperation(() -> dockerClient.copyArchiveToContainerCmd(generation.containerId)
+                .withTarInputStream(new ByteArrayInputStream(archive))
+                .withRemotePath("/")
+                .exec());
+
+        // The reply FIFO is read by the exec, so the daemon's answer comes back as the exec's stdout
+        String reply = exec(generation.containerId,
+                "cd " + dir + " && mkfifo reply && echo " + id + " > " + REQUEST_FIFO + " && cat reply",
+                config().getRequestTimeoutMs());
+        int newline = reply.indexOf('\n');
+        if (newline < 0) throw new IllegalStateException("Malformed compiler reply");
+        int exitCode = Integer.parseInt(reply.substring(0, newline).trim());
+        String diagnostics = reply.substring(newline + 1);
+        if (exitCode != 0) {
+            return new Compilation(exitCode, diagnostics, null);
+        }
+        try (InputStream output = dockerOperation(() ->
+                dockerClient.copyArchiveFromContainerCmd(generation.containerId, dir + "/out").exec())) {
+            return new Compilation(0, diagnostics, output.readAllBytes());
+        }
+    }
+
+    /**
+     * Start a fresh daemon, wait until it is warm, then swap it in and retire the previous one once its
+     * in-flight compiles finish.
+     */
+    private void replace() {
+        if (!isEnabled() || !replacing.compareAndSet(false, true)) return;
+        String containerId = null;
+        try {
+            containerId = createContainer();
+            String started = containerId;
+            dockerOperation(() -> dockerClient.startContainerCmd(started).exec());
+            long startupTimeoutMs = config().getStartupTimeoutMs();
+            exec(containerId, "until [ -p " + REQUEST_FIFO + " ]; do sleep 0.1; done", startupTimeoutMs);
+            Generation previous = current.getAndSet(new Generation(containerId));
+            if (previous != null) {
+                retire(previous);
+                recycled.increment();
+            }
+            log.info("Java compiler daemon {} ready", containerId);
+        } catch (Exception e) {
+            log.warn("Failed to start Java compiler daemon: {}", e.getMessage());
+            if (containerId != null) removeContainer(containerId);
+        } finally {
+            replacing.set(false);
+        }
+    }
+
+    private String createContainer() throws Exception {
+        MicroserviceConfig.CompilerDaemonConfig config = config();
+        String image = microserviceConfig.getExecutor().getJavaRuntime().getImage();
+        HostConfig hostConfig = HostConfig.newHostConfig()
+                .withMemory(config.getMemoryLimitMB() * 1024 * 1024)
+                .withCpuQuota((long) (config.getCpuLimit() * 100000))
+                .withCpuPeriod(100000L)
+                .withPidsLimit(128L)
+                .withNetworkMode("none")
+                .withSecurityOpts(List.of("no-new-privileges"))
+                .withTmpFs(Map.of("/tmp", "rw,nosuid,size=100m"));
+        return dockerOperation(() -> dockerClient.createContainerCmd(image)
+                .withCmd("java", "-XX:+UseSerialGC", "-cp", "/opt/codejam/compiler", "CompileServer",
+                        String.valueOf(config.getWorkers()))
+                .withHostConfig(hostConfig)
+                .withLabels(Map.of(COMPILER_LABEL, "true", DockerExecutor.SANDBOX_LABEL, "true"))
+                .withAttachStdin(false)
+                .withAttachStdout(false)
+                .withAttachStderr(false)
+                .withTty(false)
+                .exec()
+                .getId());
+    }
+
+    private void retire(Generation generation) {
+        generation.retired = true;
+        if (generation.inFlight.get() == 0) remove(generation);
+    }
+
+    private void remove(Generation generation) {
+        if (generation.removed.compareAndSet(false, true)) {
+            removeContainer(generation.containerId);
+        }
+    }
+
+    private String exec(String containerId, String command, long timeoutMs) throws Exception {
+        String execId = dockerOperation(() -> dockerClient.execCreateCmd(containerId)
+                .withCmd("sh", "-c", command)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec()
+                .getId());
+        ReplyCollector collector = new ReplyCollector();
+        dockerClient.execStartCmd(execId).withDetach(false).withTty(false).exec(collector);
+        try {
+            if (!collector.awaitCompletion(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Compiler daemon did not answer within " + timeoutMs + "ms");
+            }
+        } finally {
+            collector.close();
+        }
+        Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+        if (exitCode == null || exitCode != 0) {
+            throw new IllegalStateException("Compiler daemon exec exited with " + exitCode + ": " + collector.stderr());
+        }
+        return collector.stdout();
+    }
+
+    private <T> T dockerOperation(Callable<T> operation) throws Exception {
+        try (ExecutionLimiter.Permit ignored = executionLimiter.acquireDockerOperation()) {
+            return operation.call();
+        }
+    }
+
+    private boolean isRunning(String containerId) {
+        try {
+            InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(containerId).exec().getState();
+            return state != null && Boolean.TRUE.equals(state.getRunning());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void removeContainer(String containerId) {
+        try {
+            dockerClient.removeContainerCmd(containerId).withForce(true).exec();
+        } catch (Exception e) {
+            log.warn("Failed to remove compiler container {}", containerId);
+        }
+    }
+
+    private boolean isEnabled() {
+        return config().isEnabled() && microserviceConfig.getExecutor().getJavaRuntime().hasRunnerImage();
+    }
+
+    private MicroserviceConfig.CompilerDaemonConfig config() {
+        return microserviceConfig.getExecutor().getCompilerDaemon();
+    }
+
+    private static final class ReplyCollector extends ResultCallback.Adapter<Frame> {
+        private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+        @Override
+        public void onNext(Frame frame) {
+            byte[] payload = frame.getPayload();
+            if (payload == null) return;
+            var stream = frame.getStreamType() == StreamType.STDERR ? stderr : stdout;
+            synchronized (stream) {
+                if (stream.size() + payload.length <= MAX_REPLY_SIZE) stream.writeBytes(payload);
+            }
+        }
+
+        String stdout() {
+            synchronized (stdout) {
+                return stdout.toString(StandardCharsets.UTF_8);
+            }
+        }
+
+        String stderr() {
+            synchronized (stderr) {
+                return stderr.toString(StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
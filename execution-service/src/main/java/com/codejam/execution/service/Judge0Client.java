@@ -0,0 +1,88 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.Judge0BatchSubmissionRequest;
+import com.codejam.execution.dto.Judge0BatchSubmissionResponse;
+import com.codejam.execution.dto.Judge0SubmissionRequest;
+import com.codejam.execution.dto.Judge0SubmissionResponse;
+import com.codejam.execution.exception.RateLimitExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Non-blocking Judge0 HTTP calls. Nothing here waits on a thread: each call returns a {@link Mono} that
+ * completes on the connector's I/O threads, so hundreds of submissions can be in flight at once.
+ */
+public class Judge0Client {
+
+    private static final String RESULT_FIELDS = "token,status,stdout,stderr,compile_output,message,time,memory";
+
+    private final WebClient webClient;
+    private final MicroserviceConfig microserviceConfig;
+
+    public Judge0Client(WebClient webClient, MicroserviceConfig microserviceConfig) {
+        this.webClient = webClient;
+        this.microserviceConfig = microserviceConfig;
+    }
+
+    /**
+     * @return the submission token
+     */
+    public Mono<String> create(Judge0SubmissionRequest request) {
+        return webClient.post()
+                .uri(endpoint() + "/submissions?base64_encoded=false&wait=false")
+                .headers(this::authenticate)
+                .bodyValue(request)
+                .retrieve()
+                .onStatus(status -> status.value() == 429, response -> Mono.error(rateLimited()))
+                .bodyToMono(Judge0SubmissionResponse.class)
+                .flatMap(created -> created.getToken() != null ? Mono.just(created.getToken())
+                        : Mono.error(new CustomException("JUDGE0_FAILED", "Failed to create submission",
+                                HttpStatus.BAD_GATEWAY)));
+    }
+
+    /**
+     * @return one entry per request, in order; rejected requests come back without a token
+     */
+    public Mono<List<Judge0SubmissionResponse>> createBatch(List<Judge0SubmissionRequest> requests) {
+        return webClient.post()
+                .uri(endpoint() + "/submissions/batch?base64_encoded=false")
+                .headers(this::authenticate)
+                .bodyValue(new Judge0BatchSubmissionRequest(requests))
+                .retrieve()
+                .onStatus(status -> status.value() == 429, response -> Mono.error(rateLimited()))
+                .bodyToMono(Judge0SubmissionResponse[].class)
+                .map(Arrays::asList);
+    }
+
+    public Mono<List<Judge0SubmissionResponse>> getBatch(List<String> tokens) {
+        return webClient.get()
+                .uri(endpoint() + "/submissions/batch?tokens=" + String.join(",", tokens)
+                        + "&base64_encoded=false&fields=" + RESULT_FIELDS)
+                .headers(this::authenticate)
+                .retrieve()
+                .onStatus(status -> status.value() == 429, response -> Mono.error(rateLimited()))
+                .bodyToMono(Judge0BatchSubmissionResponse.class)
+                .map(body -> body.getSubmissions() != null ? body.getSubmissions() : List.<Judge0SubmissionResponse>of());
+    }
+
+    private void authenticate(HttpHeaders headers) {
+        MicroserviceConfig.Judge0Config config = microserviceConfig.getJudge0();
+        headers.set("X-RapidAPI-Key", config.getApiKey());
+        headers.set("X-RapidAPI-Host", config.getApiHost());
+    }
+
+    private String endpoint() {
+        return microserviceConfig.getJudge0().getEndpoint();
+    }
+
+    private static RateLimitExceededException rateLimited() {
+        return new RateLimitExceededException("Judge0 API rate limit exceeded. Please try again later.");
+    }
+}
@@ -1,41 +1,40 @@
 package com.codejam.execution.service;
 
+import com.codejam.commons.exception.CustomException;
 import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.BatchExecutionResult;
+import com.codejam.execution.dto.BatchSubmission;
 import com.codejam.execution.dto.CodeSubmission;
 import com.codejam.execution.dto.ExecutionResult;
 import com.codejam.execution.dto.ExecutionStatus;
 import com.codejam.execution.dto.Judge0SubmissionRequest;
 import com.codejam.execution.dto.Judge0SubmissionResponse;
+import com.codejam.execution.dto.TestCase;
+import com.codejam.execution.dto.TestCaseResult;
+import com.codejam.execution.dto.Verdict;
 import com.codejam.execution.exception.ExecutionTimeoutException;
 import com.codejam.execution.exception.RateLimitExceededException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.*;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientException;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 @Slf4j
 @RequiredArgsConstructor
 public class Judge0Executor implements com.codejam.execution.service.CodeExecutor {
 
     private final MicroserviceConfig microserviceConfig;
-    private final RestTemplate restTemplate;
-
-    // Judge0 language ID mapping
-    private static final Map<CodeSubmission.Language, Integer> LANGUAGE_ID_MAP = new HashMap<>();
-    
-    static {
-        LANGUAGE_ID_MAP.put(CodeSubmission.Language.JAVASCRIPT, 63); // Node.js
-        LANGUAGE_ID_MAP.put(CodeSubmission.Language.PYTHON, 71);      // Python 3
-        LANGUAGE_ID_MAP.put(CodeSubmission.Language.JAVA, 62);        // Java
-//        LANGUAGE_ID_MAP.put(CodeSubmission.Language.CPP, 54);          // C++
-//        LANGUAGE_ID_MAP.put(CodeSubmission.Language.C, 50);            // C
-//        LANGUAGE_ID_MAP.put(CodeSubmission.Language.GO, 60);           // Go
-//        LANGUAGE_ID_MAP.put(CodeSubmission.Language.RUST, 73);          // Rust
-    }
+    private final Judge0Client client;
+    private final ExecutorService executorService;
+    private final LanguageRegistry languageRegistry;
+    private final Judge0SubmissionBatcher batcher;
+    private final Judge0ResultPoller poller;
 
     // Judge0 status IDs
     private static final int STATUS_IN_QUEUE = 1;
@@ -65,20 +64,14 @@ public class Judge0Executor implements com.codejam.execution.service.CodeExecuto
             }
 
             // Map language to Judge0 language ID
-            Integer languageId = LANGUAGE_ID_MAP.get(submission.getLanguage());
-            if (languageId == null) {
+            LanguageRuntime runtime = languageRegistry.find(submission.getLanguage()).orElse(null);
+            if (runtime == null) {
                 log.error("Unsupported language: {}", submission.getLanguage());
                 return ExecutionResult.systemError(submission.getRoomId(), "Unsupported language: " + submission.getLanguage());
             }
 
-            // Create submission
-            String token = createSubmission(submission, languageId, judge0Config);
-            if (token == null) {
-                return ExecutionResult.systemError(submission.getRoomId(), "Failed to create submission");
-            }
-
-            // Poll for result with exponential backoff
-            Judge0SubmissionResponse result = pollSubmission(token, judge0Config);
+            // Create the submission and wait for its result, batched with concurrent submissions when enabled
+            Judge0SubmissionResponse result = judge(submission, runtime, "", (double) runtime.timeoutSeconds());
             
             long executionTime = System.currentTimeMillis() - startTime;
             
@@ -92,107 +85,159 @@ public class Judge0Executor implements com.codejam.execution.service.CodeExecuto
             log.warn("Execution timeout for room {}", submission.getRoomId());
             long executionTime = System.currentTimeMillis() - startTime;
             return ExecutionResult.timeout(submission.getRoomId(), executionTime);
-        } catch (RestClientException e) {
-            log.error("REST client error executing code via Judge0 for room {}", submission.getRoomId(), e);
+        } catch (WebClientException e) {
+            log.error("HTTP client error executing code via Judge0 for room {}", submission.getRoomId(), e);
             return ExecutionResult.systemError(submission.getRoomId(), "Network error: " + e.getMessage());
+        } catch (CustomException e) {
+            log.error("Judge0 rejected submission for room {}: {}", submission.getRoomId(), e.getCustomMessage());
+            return ExecutionResult.systemError(submission.getRoomId(), e.getCustomMessage());
         } catch (Exception e) {
             log.error("Error executing code via Judge0 for room {}", submission.getRoomId(), e);
             return ExecutionResult.systemError(submission.getRoomId(), "Execution failed: " + e.getMessage());
         }
     }
 
-    private String createSubmission(CodeSubmission submission, Integer languageId, MicroserviceConfig.Judge0Config config) {
+    /**
+     * Judge0 runs one stdin per submission, so each case is its own submission; shards submit their cases
+     * concurrently and output is compared here so verdicts match the Docker executor. With batching on, the
+     * whole suite is submitted up front and shares batch creates and polls.
+     */
+    @Override
+    public BatchExecutionResult executeBatch(BatchSubmission batch) {
+        long startTime = System.currentTimeMillis();
+        MicroserviceConfig.Judge0Config judge0Config = microserviceConfig.getJudge0();
+        if (judge0Config == null || judge0Config.getApiKey() == null || judge0Config.getApiKey().isEmpty()) {
+            log.error("Judge0 API key not configured");
+            return BatchExecutionResult.systemError(batch.getRoomId(), "Judge0 API key not configured");
+        }
+        LanguageRuntime runtime = languageRegistry.find(batch.getLanguage()).orElse(null);
+        if (runtime == null) {
+            return BatchExecutionResult.systemError(batch.getRoomId(), "Unsupported language: " + batch.getLanguage());
+        }
+
+        CodeSubmission submission = batch.toSubmission();
+        double caseTimeLimitSeconds = batch.getCaseTimeLimitMs() / 1000.0;
+        MicroserviceConfig.BatchConfig batchConfig = microserviceConfig.getExecutor().getBatch();
+        int shards = batcher.isEnabled() ? 1 : Math.min(batchConfig.getMaxShards(),
+                (batch.getTestCases().size() + batchConfig.getMinCasesPerShard() - 1) / Math.max(1, batchConfig.getMinCasesPerShard()));
+        ShardedBatch sharded = new ShardedBatch(batch);
         try {
-            String url = config.getEndpoint() + "/submissions?base64_encoded=false&wait=false";
-            
-            Judge0SubmissionRequest request = Judge0SubmissionRequest.builder()
-                    .languageId(languageId)
-                    .sourceCode(submission.getCode())
-                    .stdin("") // No input for now
-                    .cpuTimeLimit((double) config.getTimeoutSeconds())
-                    .memoryLimit((int) (config.getMemoryLimitMB() != null ? config.getMemoryLimitMB() * 1024 : 256 * 1024)) // Convert MB to KB
-                    .wallTimeLimit((double) (config.getTimeoutSeconds() + 5)) // Add 5s buffer for wall time
-                    .base64Encoded(false)
-                    .build();
+            sharded.run(executorService, shards, (shardIndex, caseIndexes, state) -> {
+                List<CompletableFuture<Judge0SubmissionResponse>> submitted = batcher.isEnabled()
+                        ? caseIndexes.stream()
+                                .map(index -> batcher.submit(buildRequest(submission, runtime,
+                                        stdinOf(batch.getTestCases().get(index)), caseTimeLimitSeconds)))
+                                .toList()
+                        : null;
+                for (int n = 0; n < caseIndexes.size(); n++) {
+                    int index = caseIndexes.get(n);
+                    if (state.shouldStop()) return;
+                    TestCase testCase = batch.getTestCases().get(index);
+                    Judge0SubmissionResponse response = submitted != null
+                            ? awaitCase(submitted.get(n))
+                            : judgeCase(submission, runtime, stdinOf(testCase), caseTimeLimitSeconds);
+                    TestCaseResult result = toCaseResult(index, testCase, batch, response);
+                    if (result.getVerdict() == Verdict.COMPILATION_ERROR) {
+                        state.compileFailed(response.getCompileOutput() != null ? response.getCompileOutput() : "");
+                        return;
+                    }
+                    state.record(index, result);
+                }
+            });
+        } catch (CustomException e) {
+            log.warn("Batch failed via Judge0 for room {}: {}", batch.getRoomId(), e.getCustomMessage());
+            return BatchExecutionResult.systemError(batch.getRoomId(), e.getCustomMessage());
+        }
+        return sharded.toResult(System.currentTimeMillis() - startTime);
+    }
 
-            HttpHeaders headers = createHeaders(config);
-            HttpEntity<Judge0SubmissionRequest> httpEntity = new HttpEntity<>(request, headers);
+    private static boolean reportsOutOfMemory(String stderr) {
+        return stderr != null && CaseJudge.reportsOutOfMemory(stderr);
+    }
 
-            ResponseEntity<Judge0SubmissionResponse> response = restTemplate.postForEntity(
-                url, httpEntity, Judge0SubmissionResponse.class
-            );
+    private static String stdinOf(TestCase testCase) {
+        return testCase.getStdin() != null ? testCase.getStdin() : "";
+    }
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                String token = response.getBody().getToken();
-                log.debug("Created Judge0 submission with token: {}", token);
-                return token;
-            }
+    private Judge0SubmissionResponse judgeCase(CodeSubmission submission, LanguageRuntime runtime, String stdin,
+                                               double caseTimeLimitSeconds) {
+        return caseFailures(() -> judge(submission, runtime, stdin, caseTimeLimitSeconds));
+    }
 
-            log.error("Failed to create submission: {}", response.getStatusCode());
-            return null;
+    private Judge0SubmissionResponse awaitCase(CompletableFuture<Judge0SubmissionResponse> submitted) {
+        return caseFailures(() -> await(submitted));
+    }
 
-        } catch (RestClientException e) {
-            log.error("Error creating submission", e);
-            throw e;
+    /**
+     * Batch cases fail the whole batch, so transport and timeout errors become a {@link CustomException}.
+     */
+    private Judge0SubmissionResponse caseFailures(Supplier<Judge0SubmissionResponse> call) {
+        try {
+            return call.get();
+        } catch (ExecutionTimeoutException e) {
+            throw new CustomException("JUDGE0_FAILED", e.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+        } catch (WebClientException e) {
+            log.error("HTTP client error running batch case via Judge0", e);
+            throw new CustomException("JUDGE0_FAILED", "Network error: " + e.getMessage(), HttpStatus.BAD_GATEWAY);
         }
     }
 
-    private Judge0SubmissionResponse pollSubmission(String token, MicroserviceConfig.Judge0Config config) {
-        String url = config.getEndpoint() + "/submissions/" + token + "?base64_encoded=false";
-        HttpHeaders headers = createHeaders(config);
-        HttpEntity<Void> request = new HttpEntity<>(headers);
-
-        int maxAttempts = config.getMaxPollAttempts() != null ? config.getMaxPollAttempts() : 25;
-        int basePollIntervalMs = config.getPollIntervalMs() != null ? config.getPollIntervalMs() : 1000;
-        int maxSleepMs = 5000; // Max 5 seconds
-
-        for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            try {
-                ResponseEntity<Judge0SubmissionResponse> response = restTemplate.exchange(
-                    url, HttpMethod.GET, request, Judge0SubmissionResponse.class
-                );
-
-                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                    Judge0SubmissionResponse result = response.getBody();
-                    Integer statusId = result.getStatus() != null ? result.getStatus().getId() : null;
-
-                    // If not in queue or processing, we have the final result
-                    if (statusId != null && statusId != STATUS_IN_QUEUE && statusId != STATUS_PROCESSING) {
-                        log.debug("Submission {} completed with status {}", token, statusId);
-                        return result;
-                    }
+    private TestCaseResult toCaseResult(int index, TestCase testCase, BatchSubmission batch,
+                                        Judge0SubmissionResponse response) {
+        Integer statusId = response.getStatus() != null ? response.getStatus().getId() : null;
+        long elapsedMs = response.getTime() != null ? (long) (response.getTime() * 1000) : 0;
+        if (statusId != null && statusId == STATUS_COMPILATION_ERROR) {
+            return TestCaseResult.builder().index(index).id(testCase.getId()).verdict(Verdict.COMPILATION_ERROR).build();
+        }
+        CaseJudge judge = new CaseJudge(index, testCase, batch);
+        if (response.getStdout() != null) judge.onOutput(ExecutionOutputListener.Channel.STDOUT, response.getStdout());
+        if (response.getStderr() != null) judge.onOutput(ExecutionOutputListener.Channel.STDERR, response.getStderr());
+        if (statusId != null && statusId == STATUS_TIME_LIMIT_EXCEEDED) {
+            return judge.result(137, Math.max(elapsedMs, batch.getCaseTimeLimitMs()), batch.getCaseTimeLimitMs(), false);
+        }
+        // Judge0 has no expected output for these submissions, so anything but ACCEPTED is a runtime failure
+        boolean ran = statusId != null && (statusId == STATUS_ACCEPTED || statusId == STATUS_WRONG_ANSWER);
+        return judge.result(ran ? 0 : 1, elapsedMs, batch.getCaseTimeLimitMs(), false);
+    }
 
-                    // Still processing, wait with exponential backoff
-                    int sleepMs = Math.min(basePollIntervalMs * (1 << attempt), maxSleepMs);
-                    log.debug("Submission {} still processing (status {}), sleeping {}ms before next poll (attempt {}/{})", 
-                            token, statusId, sleepMs, attempt + 1, maxAttempts);
-                    
-                    try {
-                        Thread.sleep(sleepMs);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new ExecutionTimeoutException("Execution polling interrupted");
-                    }
-                } else {
-                    log.warn("Failed to poll submission: {}", response.getStatusCode());
-                }
+    /**
+     * Run one submission to completion, through the batcher when batching is enabled. Either way the result
+     * is created and collected without blocking; only this caller waits, on the submission's future.
+     */
+    private Judge0SubmissionResponse judge(CodeSubmission submission, LanguageRuntime runtime, String stdin,
+                                           double cpuTimeLimitSeconds) {
+        Judge0SubmissionRequest request = buildRequest(submission, runtime, stdin, cpuTimeLimitSeconds);
+        if (batcher.isEnabled()) {
+            return await(batcher.submit(request));
+        }
+        return await(client.create(request).toFuture().thenCompose(poller::track));
+    }
 
-            } catch (RestClientException e) {
-                log.error("Error polling submission (attempt {}/{})", attempt + 1, maxAttempts, e);
-                // Continue polling on error, but with exponential backoff
-                int sleepMs = Math.min(basePollIntervalMs * (1 << attempt), maxSleepMs);
-                try {
-                    Thread.sleep(sleepMs);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new ExecutionTimeoutException("Execution polling interrupted");
-                }
-            }
+    private Judge0SubmissionResponse await(CompletableFuture<Judge0SubmissionResponse> submitted) {
+        try {
+            return submitted.get();
+        } catch (InterruptedException e) {
+            submitted.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ExecutionTimeoutException("Execution polling interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new CustomException("JUDGE0_FAILED", "Judge0 submission failed", HttpStatus.BAD_GATEWAY);
         }
+    }
 
-        // Timeout - return timeout result
-        log.warn("Submission {} polling timed out after {} attempts", token, maxAttempts);
-        throw new ExecutionTimeoutException("Execution timed out after " + maxAttempts + " polling attempts");
+    private Judge0SubmissionRequest buildRequest(CodeSubmission submission, LanguageRuntime runtime, String stdin,
+                                                 double cpuTimeLimitSeconds) {
+        return Judge0SubmissionRequest.builder()
+                .languageId(runtime.judge0Id())
+                .sourceCode(submission.getCode())
+                .stdin(stdin)
+                .cpuTimeLimit(cpuTimeLimitSeconds)
+                .memoryLimit((int) (runtime.memoryLimitMB() * 1024)) // Convert MB to KB
+                .wallTimeLimit(cpuTimeLimitSeconds + 5) // Add 5s buffer for wall time
+                .base64Encoded(false)
+                .callbackUrl(poller.callbackUrl())
+                .build();
     }
 
     private ExecutionResult mapToExecutionResult(String roomId, Judge0SubmissionResponse result, long executionTime) {
@@ -215,20 +260,38 @@ public class Judge0Executor implements com.codejam.execution.service.CodeExecuto
                 return ExecutionResult.builder()
                     .roomId(roomId)
                     .status(ExecutionStatus.SUCCESS)
+                    .verdict(Verdict.ACCEPTED)
                     .stdout(stdout)
+                    .compileOutput(compileOutput)
                     .exitCode(0)
                     .executionTimeMs(executionTimeMs)
                     .build();
 
+            case STATUS_WRONG_ANSWER:
+                // The program ran cleanly; only its output differs from the expected output
+                return ExecutionResult.builder()
+                    .roomId(roomId)
+                    .status(ExecutionStatus.SUCCESS)
+                    .verdict(Verdict.WRONG_ANSWER)
+                    .stdout(stdout)
+                    .stderr(stderr)
+                    .exitCode(0)
+                    .errorMessage("Wrong answer")
+                    .executionTimeMs(executionTimeMs)
+                    .build();
+
             case STATUS_COMPILATION_ERROR:
                 String compileError = !compileOutput.isEmpty() ? compileOutput : 
                                      (!stderr.isEmpty() ? stderr : message);
                 return ExecutionResult.builder()
                     .roomId(roomId)
                     .status(ExecutionStatus.ERROR)
-                    .stderr(compileError)
+                    .compileOutput(compileError)
+                    .errorMessage("Compilation failed")
                     .exitCode(1)
                     .executionTimeMs(executionTimeMs)
+                    .compileError(true)
+                    .verdict(Verdict.COMPILATION_ERROR)
                     .build();
 
             case STATUS_RUNTIME_ERROR_SIGSEGV:
@@ -237,13 +300,13 @@ public class Judge0Executor implements com.codejam.execution.service.CodeExecuto
             case STATUS_RUNTIME_ERROR_SIGABRT:
             case STATUS_RUNTIME_ERROR_NZEC:
             case STATUS_RUNTIME_ERROR_OTHER:
-            case STATUS_WRONG_ANSWER:
                 String errorMsg = !stderr.isEmpty() ? stderr : 
                                  (result.getStatus().getDescription() != null ? 
                                   result.getStatus().getDescription() : "Runtime error");
                 return ExecutionResult.builder()
                     .roomId(roomId)
                     .status(ExecutionStatus.ERROR)
+                    .verdict(reportsOutOfMemory(stderr) ? Verdict.MEMORY_LIMIT_EXCEEDED : Verdict.RUNTIME_ERROR)
                     .stderr(errorMsg)
                     .stdout(stdout)
                     .exitCode(1)
@@ -263,12 +326,4 @@ public class Judge0Executor implements com.codejam.execution.service.CodeExecuto
                 return ExecutionResult.systemError(roomId, systemError);
         }
     }
-
-    private HttpHeaders createHeaders(MicroserviceConfig.Judge0Config config) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("X-RapidAPI-Key", config.getApiKey());
-        headers.set("X-RapidAPI-Host", config.getApiHost());
-        return headers;
-    }
 }
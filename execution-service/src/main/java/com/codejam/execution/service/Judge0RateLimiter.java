@@ -1,85 +1,249 @@
 package com.codejam.execution.service;
 
+import com.codejam.commons.service.RedisService;
+import com.codejam.commons.util.proxyUtils;
+import com.codejam.execution.config.MicroserviceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.ZoneOffset;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
+/**
+ * Judge0 provider quota shared by every replica. Per-minute and per-day counters live in Redis and are
+ * checked and incremented in one Lua script, so N replicas together stay within the provider's limits.
+ * Each replica leases a block of calls at a time and serves them locally, so only one call in
+ * {@code lease-size} goes to Redis. When Redis is off or unreachable each replica counts on its own.
+ */
 @Slf4j
 @Service
 @ConditionalOnProperty(name = "app.executor.type", havingValue = "judge0")
 public class Judge0RateLimiter {
 
-    private static final int DAILY_LIMIT = 50;
-    private static final int WARNING_THRESHOLD = 40;
-    private static final int BUFFER = 5; // Keep 5 calls as buffer
-    private static final int MAX_ALLOWED = DAILY_LIMIT - BUFFER; // 45 calls max
+    private static final String REDIS_PREFIX = "JUDGE0_QUOTA";
+    private static final int WARNING_MARGIN = 5;
+    // Counters outlive their window a little so late refunds still find them
+    private static final long MINUTE_KEY_TTL_SECONDS = 120;
+    private static final long DAY_KEY_TTL_SECONDS = 2 * 24 * 3600;
 
-    private final AtomicInteger dailyCallCount = new AtomicInteger(0);
-    private volatile LocalDate currentDate;
+    /**
+     * KEYS: minute counter, day counter. ARGV: calls wanted, minute limit (0 = none), day limit, minute TTL,
+     * day TTL. Grants as many of the wanted calls as both windows allow.
+     * @return {granted, calls used today including the grant}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> LEASE_SCRIPT = new DefaultRedisScript<>("""
+            local wanted = tonumber(ARGV[1])
+            local minuteLimit = tonumber(ARGV[2])
+            local dayLimit = tonumber(ARGV[3])
+            local dayUsed = tonumber(redis.call('GET', KEYS[2]) or '0')
+            local granted = math.min(wanted, dayLimit - dayUsed)
+            if minuteLimit > 0 then
+                granted = math.min(granted, minuteLimit - tonumber(redis.call('GET', KEYS[1]) or '0'))
+            end
+            if granted <= 0 then
+                return {0, dayUsed}
+            end
+            if redis.call('INCRBY', KEYS[1], granted) == granted then
+                redis.call('EXPIRE', KEYS[1], ARGV[4])
+            end
+            if redis.call('INCRBY', KEYS[2], granted) == granted then
+                redis.call('EXPIRE', KEYS[2], ARGV[5])
+            end
+            return {granted, dayUsed + granted}
+            """, List.class);
+
+    /**
+     * KEYS: counters to give the calls back to. ARGV: unused calls. Expired counters are left alone.
+     */
+    private static final RedisScript<Long> REFUND_SCRIPT = new DefaultRedisScript<>("""
+            for _, key in ipairs(KEYS) do
+                if redis.call('EXISTS', key) == 1 then
+                    redis.call('DECRBY', key, ARGV[1])
+                end
+            end
+            return 0
+            """, Long.class);
+
+    private final MicroserviceConfig microserviceConfig;
+    private final ObjectProvider<RedisService> redisService;
+    private final proxyUtils proxyUtils;
+    private final Counter leases;
+    private final Counter denied;
 
-    public Judge0RateLimiter() {
-        this.currentDate = LocalDate.now(ZoneOffset.UTC);
+    // Guarded by this: the current lease, and the per-replica fallback counters
+    private int leased;
+    private long leaseMinute;
+    private LocalDate leaseDay;
+    private long localMinute;
+    private int localMinuteCount;
+    private LocalDate localDay;
+    private int localDayCount;
+    private volatile int lastDayCount;
+
+    public Judge0RateLimiter(MicroserviceConfig microserviceConfig, ObjectProvider<RedisService> redisService,
+                             proxyUtils proxyUtils, MeterRegistry meterRegistry) {
+        this.microserviceConfig = microserviceConfig;
+        this.redisService = redisService;
+        this.proxyUtils = proxyUtils;
+        this.leases = meterRegistry.counter("execution.judge0.quota.leases");
+        this.denied = meterRegistry.counter("execution.judge0.quota.denied");
     }
 
     /**
-     * Check if execution is allowed for the given user
+     * Check if execution is allowed for the given user, and take one call from the quota if so
      * @param userId User identifier (can be roomId or any identifier)
      * @return true if execution is allowed, false if rate limit exceeded
      */
     public boolean allowExecution(String userId) {
-        LocalDate today = LocalDate.now(ZoneOffset.UTC);
-        
-        // Reset counter if date changed
-        if (!today.equals(currentDate)) {
-            synchronized (this) {
-                if (!today.equals(currentDate)) {
-                    int previousCount = dailyCallCount.get();
-                    dailyCallCount.set(0);
-                    currentDate = today;
-                    log.info("Rate limiter reset for new day. Previous count: {}", previousCount);
-                }
-            }
-        }
+        return allowExecutions(userId, 1);
+    }
 
-        int currentCount = dailyCallCount.get();
-        
-        // Log warning if approaching limit
-        if (currentCount >= WARNING_THRESHOLD && currentCount < MAX_ALLOWED) {
-            log.warn("Judge0 API approaching daily limit: {}/{} calls used", currentCount, DAILY_LIMIT);
+    /**
+     * Take {@code permits} calls from the quota at once, for work that makes several provider submissions
+     * such as a batch of test cases. Nothing is taken unless all of them are available.
+     * @param userId User identifier (can be roomId or any identifier)
+     * @param permits Number of provider calls the execution will make
+     * @return true if execution is allowed, false if rate limit exceeded
+     */
+    public synchronized boolean allowExecutions(String userId, int permits) {
+        if (permits <= 0) return true;
+        long minute = System.currentTimeMillis() / 60_000;
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if (leased > 0 && minute != leaseMinute) {
+            // Calls were counted against the lease's minute; give them back to the day rather than carry them over
+            refund(leased, false);
+            leased = 0;
         }
-        
-        // Check if limit exceeded
-        if (currentCount >= MAX_ALLOWED) {
-            log.warn("Judge0 API daily limit reached: {}/{} calls. Execution denied for user: {}", 
-                    currentCount, DAILY_LIMIT, userId);
-            return false;
+        if (leased < permits) {
+            // Top up the lease with at least the missing calls; a partial grant stays leased for later calls
+            Boolean shared = lease(minute, today, Math.max(config().getLeaseSize(), permits - leased));
+            boolean allowed = shared != null ? leased >= permits : allowLocally(minute, today, permits);
+            if (!allowed) {
+                denied.increment();
+                log.warn("Judge0 API limit reached: {}/{} calls today. Execution of {} calls denied for user: {}",
+                        lastDayCount, maxAllowed(), permits, userId);
+                return false;
+            }
+            if (shared == null) return true;
         }
-        
-        // Increment and allow
-        int newCount = dailyCallCount.incrementAndGet();
-        log.debug("Judge0 API call count: {}/{} for user: {}", newCount, DAILY_LIMIT, userId);
+        leased -= permits;
+        log.debug("Judge0 API calls allowed for user: {} ({} taken, {} leased calls left)", userId, permits, leased);
         return true;
     }
 
     /**
-     * Get current daily call count
+     * Calls used today as of the last quota check, across all replicas when Redis is in use
      */
     public int getCurrentCount() {
-        return dailyCallCount.get();
+        return lastDayCount;
+    }
+
+    /**
+     * Give leased calls this replica has not used back to the shared quota.
+     */
+    @PreDestroy
+    public synchronized void releaseLease() {
+        if (leased > 0) refund(leased, System.currentTimeMillis() / 60_000 == leaseMinute);
+        leased = 0;
+    }
+
+    /**
+     * Lease up to {@code wanted} more calls from Redis and add them to the current lease.
+     * @return null when Redis is not in use or unreachable, so the caller falls back to local counting
+     */
+    @SuppressWarnings("unchecked")
+    private Boolean lease(long minute, LocalDate today, int wanted) {
+        RedisService redis = redis();
+        if (redis == null) return null;
+        MicroserviceConfig.Judge0QuotaConfig config = config();
+        try {
+            List<Long> result = redis.executeScript(LEASE_SCRIPT,
+                    List.of(minuteKey(minute), dayKey(today)),
+                    String.valueOf(Math.max(1, wanted)),
+                    String.valueOf(config.getPerMinuteLimit()),
+                    String.valueOf(maxAllowed()),
+                    String.valueOf(MINUTE_KEY_TTL_SECONDS),
+                    String.valueOf(DAY_KEY_TTL_SECONDS));
+            int granted = result.get(0).intValue();
+            leased += granted;
+            leaseMinute = minute;
+            leaseDay = today;
+            lastDayCount = result.get(1).intValue();
+            if (granted > 0) {
+                leases.increment();
+                if (lastDayCount >= maxAllowed() - WARNING_MARGIN) {
+                    log.warn("Judge0 API approaching daily limit: {}/{} calls used", lastDayCount, maxAllowed());
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Judge0 quota lease failed, counting locally: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void refund(int unused, boolean includeMinute) {
+        RedisService redis = redis();
+        if (redis == null || leaseDay == null) return;
+        List<String> keys = includeMinute ? List.of(minuteKey(leaseMinute), dayKey(leaseDay)) : List.of(dayKey(leaseDay));
+        try {
+            redis.executeScript(REFUND_SCRIPT, keys, String.valueOf(unused));
+        } catch (Exception e) {
+            log.debug("Judge0 quota refund of {} calls failed: {}", unused, e.getMessage());
+        }
     }
 
     /**
-     * Reset counter at midnight UTC (scheduled task)
+     * Per-replica windows, used only while Redis is unavailable.
      */
-    @Scheduled(cron = "0 0 0 * * *", zone = "UTC")
-    public void resetDailyCounter() {
-        int previousCount = dailyCallCount.getAndSet(0);
-        currentDate = LocalDate.now(ZoneOffset.UTC);
-        log.info("Rate limiter reset at midnight UTC. Previous count: {}", previousCount);
+    private boolean allowLocally(long minute, LocalDate today, int permits) {
+        if (!today.equals(localDay)) {
+            localDay = today;
+            localDayCount = 0;
+        }
+        if (minute != localMinute) {
+            localMinute = minute;
+            localMinuteCount = 0;
+        }
+        int perMinuteLimit = config().getPerMinuteLimit();
+        if (localDayCount + permits > maxAllowed()
+                || (perMinuteLimit > 0 && localMinuteCount + permits > perMinuteLimit)) {
+            lastDayCount = localDayCount;
+            return false;
+        }
+        localMinuteCount += permits;
+        localDayCount += permits;
+        lastDayCount = localDayCount;
+        return true;
+    }
+
+    private RedisService redis() {
+        return config().isRedisEnabled() ? redisService.getIfAvailable() : null;
+    }
+
+    private String minuteKey(long minute) {
+        return proxyUtils.generateRedisKey(REDIS_PREFIX, "minute", String.valueOf(minute));
+    }
+
+    private String dayKey(LocalDate day) {
+        return proxyUtils.generateRedisKey(REDIS_PREFIX, "day", day.toString());
+    }
+
+    private int maxAllowed() {
+        MicroserviceConfig.Judge0QuotaConfig config = config();
+        return config.getDailyLimit() - config.getDailyBuffer();
+    }
+
+    private MicroserviceConfig.Judge0QuotaConfig config() {
+        return microserviceConfig.getJudge0().getQuota();
     }
 }
@@ -0,0 +1,219 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.Judge0SubmissionResponse;
+import com.codejam.execution.exception.ExecutionTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single background poller for every outstanding Judge0 token. Each tick fetches all outstanding tokens
+ * with batched {@code GET /submissions/batch} calls, issued concurrently and without blocking, and completes
+ * their futures, so no request thread sleeps in a poll loop. The next tick is scheduled once every call of
+ * the current one has answered. The tick interval stays short while results are arriving or tokens are new and
+ * backs off towards {@code poll-interval-ms} while everything is still queued. In callback mode results
+ * arrive through {@link #complete} and only tokens the callback has not delivered in time are polled.
+ */
+@Slf4j
+public class Judge0ResultPoller {
+
+    private static final int STATUS_IN_QUEUE = 1;
+    private static final int STATUS_PROCESSING = 2;
+
+    private final Judge0Client client;
+    private final MicroserviceConfig microserviceConfig;
+    private final Map<String, Tracked> outstanding = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "judge0-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean newTokens = new AtomicBoolean();
+    private final Counter polls;
+    private final Counter callbacks;
+    private volatile long intervalMs;
+
+    private record Tracked(CompletableFuture<Judge0SubmissionResponse> result, long createdMs, long deadlineMs) {}
+
+    public Judge0ResultPoller(Judge0Client client, MicroserviceConfig microserviceConfig,
+                              MeterRegistry meterRegistry) {
+        this.client = client;
+        this.microserviceConfig = microserviceConfig;
+        this.polls = meterRegistry.counter("execution.judge0.polls");
+        this.callbacks = meterRegistry.counter("execution.judge0.callbacks");
+        meterRegistry.gauge("execution.judge0.outstanding", outstanding, Map::size);
+    }
+
+    /**
+     * Start tracking a created submission.
+     * @return completes with the finished result, or exceptionally with {@link ExecutionTimeoutException} once
+     * the token outlives the result timeout; cancelling it stops tracking the token
+     */
+    public CompletableFuture<Judge0SubmissionResponse> track(String token) {
+        CompletableFuture<Judge0SubmissionResponse> result = new CompletableFuture<>();
+        long now = System.currentTimeMillis();
+        outstanding.put(token, new Tracked(result, now, now + config().getResultTimeoutMs()));
+        result.whenComplete((response, error) -> outstanding.remove(token));
+        newTokens.set(true);
+        wake();
+        return result;
+    }
+
+    /**
+     * Complete a submission from a result Judge0 pushed to the callback endpoint.
+     * @return false for unknown tokens (already completed, timed out, or tracked by another replica) and
+     * results that are not final yet
+     */
+    public boolean complete(Judge0SubmissionResponse result) {
+        if (result == null || result.getToken() == null || !isFinished(result)) return false;
+        Tracked tracked = outstanding.get(result.getToken());
+        if (tracked == null) return false;
+        callbacks.increment();
+        return tracked.result().complete(result);
+    }
+
+    /**
+     * @return the callback URL to put on new submissions, or null when callback mode is off
+     */
+    public String callbackUrl() {
+        MicroserviceConfig.Judge0CallbackConfig callback = microserviceConfig.getJudge0().getCallback();
+        if (!callback.isActive()) return null;
+        String separator = callback.getUrl().contains("?") ? "&" : "?";
+        return callback.getUrl() + separator + "secret=" + URLEncoder.encode(callback.getSecret(), StandardCharsets.UTF_8);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        outstanding.values().forEach(tracked -> tracked.result().cancel(false));
+        outstanding.clear();
+    }
+
+    private void wake() {
+        if (scheduled.compareAndSet(false, true)) {
+            intervalMs = config().getMinIntervalMs();
+            schedule(intervalMs);
+        }
+    }
+
+    private void schedule(long delayMs) {
+        try {
+            scheduler.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            scheduled.set(false);
+        }
+    }
+
+    private void tick() {
+        boolean freshTokens = newTokens.getAndSet(false);
+        pollOutstanding()
+                .onErrorResume(e -> {
+                    log.error("Judge0 poll tick failed", e);
+                    return Mono.just(false);
+                })
+                .subscribe(progressed -> finishTick(freshTokens || progressed));
+    }
+
+    private void finishTick(boolean progressed) {
+        try {
+            expire();
+        } catch (Exception e) {
+            log.error("Judge0 poll expiry failed", e);
+        }
+        if (outstanding.isEmpty()) {
+            scheduled.set(false);
+            // A token tracked between the check and the reset would otherwise wait for the next one
+            if (!outstanding.isEmpty()) wake();
+            return;
+        }
+        MicroserviceConfig.Judge0Config judge0 = microserviceConfig.getJudge0();
+        long maxIntervalMs = judge0.getPollIntervalMs() != null ? judge0.getPollIntervalMs() : 1000;
+        intervalMs = progressed ? config().getMinIntervalMs() : Math.min(intervalMs * 2, maxIntervalMs);
+        schedule(intervalMs);
+    }
+
+    /**
+     * @return emits whether any submission finished this round, once every chunk has answered
+     */
+    private Mono<Boolean> pollOutstanding() {
+        int chunkSize = Math.max(1, microserviceConfig.getJudge0().getBatching().getMaxBatchSize());
+        List<String> tokens = pollableTokens();
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < tokens.size(); from += chunkSize) {
+            chunks.add(tokens.subList(from, Math.min(from + chunkSize, tokens.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .flatMap(this::pollChunk)
+                .reduce(false, Boolean::logicalOr);
+    }
+
+    private Mono<Boolean> pollChunk(List<String> chunk) {
+        polls.increment();
+        return client.getBatch(chunk)
+                .map(results -> {
+                    boolean progressed = false;
+                    for (Judge0SubmissionResponse result : results) {
+                        if (result == null || result.getToken() == null || !isFinished(result)) continue;
+                        Tracked tracked = outstanding.get(result.getToken());
+                        if (tracked != null) {
+                            log.debug("Submission {} completed with status {}", result.getToken(), result.getStatus().getId());
+                            progressed |= tracked.result().complete(result);
+                        }
+                    }
+                    return progressed;
+                })
+                .onErrorResume(e -> {
+                    log.error("Error polling {} Judge0 submissions", chunk.size(), e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Every outstanding token, or in callback mode only those whose callback is overdue.
+     */
+    private List<String> pollableTokens() {
+        MicroserviceConfig.Judge0CallbackConfig callback = microserviceConfig.getJudge0().getCallback();
+        if (!callback.isActive()) return new ArrayList<>(outstanding.keySet());
+        long overdueBefore = System.currentTimeMillis() - callback.getFallbackAfterMs();
+        List<String> tokens = new ArrayList<>();
+        outstanding.forEach((token, tracked) -> {
+            if (tracked.createdMs() < overdueBefore) tokens.add(token);
+        });
+        return tokens;
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        outstanding.forEach((token, tracked) -> {
+            if (now > tracked.deadlineMs()) {
+                log.warn("Submission {} polling timed out", token);
+                tracked.result().completeExceptionally(new ExecutionTimeoutException(
+                        "Execution timed out after " + config().getResultTimeoutMs() + "ms"));
+            }
+        });
+    }
+
+    private boolean isFinished(Judge0SubmissionResponse result) {
+        Integer statusId = result.getStatus() != null ? result.getStatus().getId() : null;
+        return statusId != null && statusId != STATUS_IN_QUEUE && statusId != STATUS_PROCESSING;
+    }
+
+    private MicroserviceConfig.Judge0PollingConfig config() {
+        return microserviceConfig.getJudge0().getPolling();
+    }
+}
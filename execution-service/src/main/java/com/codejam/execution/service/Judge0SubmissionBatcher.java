@@ -0,0 +1,166 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.Judge0SubmissionRequest;
+import com.codejam.execution.dto.Judge0SubmissionResponse;
+import com.codejam.execution.exception.ExecutionTimeoutException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups Judge0 submissions made within a short window into one {@code POST /submissions/batch}; the tokens
+ * are handed to the shared {@link Judge0ResultPoller}, so N concurrent submissions cost one create and a
+ * share of each poll instead of one create and several polls each. The create call is non-blocking, so a
+ * slow Judge0 holds no thread while batches are in flight.
+ */
+@Slf4j
+public class Judge0SubmissionBatcher {
+
+    private final Judge0Client client;
+    private final Judge0ResultPoller poller;
+    private final MicroserviceConfig microserviceConfig;
+    private final ScheduledExecutorService windowScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "judge0-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final DistributionSummary batchSizes;
+    // Guarded by this
+    private List<Pending> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    private record Pending(Judge0SubmissionRequest request, CompletableFuture<Judge0SubmissionResponse> result) {}
+
+    public Judge0SubmissionBatcher(Judge0Client client, Judge0ResultPoller poller,
+                                   MicroserviceConfig microserviceConfig, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.poller = poller;
+        this.microserviceConfig = microserviceConfig;
+        this.batchSizes = meterRegistry.summary("execution.judge0.batch.size");
+    }
+
+    public boolean isEnabled() {
+        return config().isEnabled();
+    }
+
+    /**
+     * Queue a submission for the next batch.
+     * @return completes with the finished Judge0 result, or exceptionally with {@link ExecutionTimeoutException}
+     * when polling gives up, a {@link CustomException} when Judge0 rejects it, or the HTTP error
+     */
+    public CompletableFuture<Judge0SubmissionResponse> submit(Judge0SubmissionRequest request) {
+        Pending submission = new Pending(request, new CompletableFuture<>());
+        List<Pending> full = null;
+        synchronized (this) {
+            pending.add(submission);
+            if (pending.size() >= maxBatchSize()) {
+                full = drain();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                windowScheduler.schedule(this::flushWindow, config().getWindowMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) dispatch(full);
+        return submission.result();
+    }
+
+    public void shutdown() {
+        windowScheduler.shutdownNow();
+        List<Pending> abandoned;
+        synchronized (this) {
+            abandoned = drain();
+        }
+        abandoned.forEach(submission -> submission.result().cancel(false));
+    }
+
+    private void flushWindow() {
+        List<Pending> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            batch = drain();
+        }
+        if (!batch.isEmpty()) dispatch(batch);
+    }
+
+    private List<Pending> drain() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void dispatch(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        client.createBatch(batch.stream().map(Pending::request).toList())
+                .subscribe(created -> accept(batch, created), error -> {
+                    log.error("Judge0 batch of {} failed", batch.size(), error);
+                    batch.forEach(submission -> submission.result().completeExceptionally(error));
+                });
+    }
+
+    private void accept(List<Pending> batch, List<Judge0SubmissionResponse> created) {
+        try {
+            register(batch, created).forEach((token, submission) -> forward(poller.track(token), submission.result()));
+        } catch (Exception e) {
+            log.error("Judge0 batch of {} failed", batch.size(), e);
+            batch.forEach(submission -> submission.result().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * @return accepted submissions by token; rejected ones are completed here
+     */
+    private Map<String, Pending> register(List<Pending> batch, List<Judge0SubmissionResponse> created) {
+        if (created.size() != batch.size()) {
+            throw new CustomException("JUDGE0_FAILED", "Unexpected batch create response", HttpStatus.BAD_GATEWAY);
+        }
+        Map<String, Pending> outstanding = new LinkedHashMap<>();
+        for (int i = 0; i < created.size(); i++) {
+            String token = created.get(i) != null ? created.get(i).getToken() : null;
+            if (token == null) {
+                batch.get(i).result().completeExceptionally(
+                        new CustomException("JUDGE0_FAILED", "Failed to create submission", HttpStatus.BAD_GATEWAY));
+            } else {
+                outstanding.put(token, batch.get(i));
+            }
+        }
+        log.debug("Created Judge0 batch of {} submissions", outstanding.size());
+        return outstanding;
+    }
+
+    /**
+     * Complete the caller's future from the poller's, and stop polling the token if the caller gives up.
+     */
+    private static void forward(CompletableFuture<Judge0SubmissionResponse> tracked,
+                                CompletableFuture<Judge0SubmissionResponse> result) {
+        tracked.whenComplete((response, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(response);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) tracked.cancel(false);
+        });
+    }
+
+    private int maxBatchSize() {
+        return Math.max(1, config().getMaxBatchSize());
+    }
+
+    private MicroserviceConfig.Judge0BatchingConfig config() {
+        return microserviceConfig.getJudge0().getBatching();
+    }
+}
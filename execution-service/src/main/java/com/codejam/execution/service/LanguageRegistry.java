@@ -0,0 +1,93 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.CodeSubmission;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Resolves languages against {@code app.languages}. Entries are read from the refresh-scoped config on every
+ * lookup, so image, command and limit changes apply to the next run without a redeploy.
+ */
+@Component
+@RequiredArgsConstructor
+public class LanguageRegistry {
+
+    private final MicroserviceConfig microserviceConfig;
+
+    /**
+     * @throws CustomException 400 when the language has no usable entry for the configured executor
+     */
+    public LanguageRuntime get(CodeSubmission.Language language) {
+        return find(language).orElseThrow(() -> new CustomException("UNSUPPORTED_LANGUAGE",
+                "Language not supported: " + language, HttpStatus.BAD_REQUEST));
+    }
+
+    public Optional<LanguageRuntime> find(CodeSubmission.Language language) {
+        if (language == null) return Optional.empty();
+        MicroserviceConfig.LanguageConfig config = microserviceConfig.getLanguages().get(language);
+        if (config == null || !config.isEnabled() || !isUsable(config)) return Optional.empty();
+        return Optional.of(resolve(language, config));
+    }
+
+    public List<CodeSubmission.Language> supportedLanguages() {
+        return Arrays.stream(CodeSubmission.Language.values())
+                .filter(language -> find(language).isPresent())
+                .toList();
+    }
+
+    private boolean isUsable(MicroserviceConfig.LanguageConfig config) {
+        if (isJudge0()) return config.getJudge0Id() != null;
+        return config.getImage() != null && config.getExtension() != null && config.getRunCommand() != null;
+    }
+
+    private LanguageRuntime resolve(CodeSubmission.Language language, MicroserviceConfig.LanguageConfig config) {
+        MicroserviceConfig.ExecutionConfig executor = microserviceConfig.getExecutor();
+        MicroserviceConfig.Judge0Config judge0 = microserviceConfig.getJudge0();
+        // Unset limits inherit from whichever backend runs the code
+        long defaultTimeout = isJudge0() && judge0.getTimeoutSeconds() != null
+                ? judge0.getTimeoutSeconds() : executor.getTimeoutSeconds();
+        long defaultMemory = isJudge0() && judge0.getMemoryLimitMB() != null
+                ? judge0.getMemoryLimitMB() : executor.getMemoryLimitMB();
+
+        String image = config.getImage();
+        if (language == CodeSubmission.Language.JAVA && executor.getJavaRuntime().hasRunnerImage()) {
+            image = executor.getJavaRuntime().getImage();
+        }
+        MicroserviceConfig.PoolConfig poolDefaults = executor.getPool();
+        MicroserviceConfig.LanguagePoolConfig pool = config.getPool() != null
+                ? config.getPool() : new MicroserviceConfig.LanguagePoolConfig();
+        int minIdle = pool.getMinIdle() != null ? pool.getMinIdle() : poolDefaults.getMinIdle();
+        int maxSize = Math.max(pool.getMaxSize() != null ? pool.getMaxSize() : poolDefaults.getMaxSize(), minIdle);
+
+        return new LanguageRuntime(
+                language,
+                image,
+                config.getExtension(),
+                blankToNull(config.getCompileCommand()),
+                config.getRunCommand(),
+                blankToNull(config.getSourceRunCommand()),
+                config.getTimeoutSeconds() != null ? config.getTimeoutSeconds() : defaultTimeout,
+                config.getCompileTimeoutSeconds() != null
+                        ? config.getCompileTimeoutSeconds() : executor.getCompileTimeoutSeconds(),
+                config.getMemoryLimitMB() != null ? config.getMemoryLimitMB() : defaultMemory,
+                config.getCpuLimit() != null ? config.getCpuLimit() : executor.getCpuLimit(),
+                minIdle,
+                maxSize,
+                config.getJudge0Id());
+    }
+
+    private boolean isJudge0() {
+        return "judge0".equalsIgnoreCase(microserviceConfig.getExecutor().getType());
+    }
+
+    private String blankToNull(String value) {
+        return value != null && !value.isBlank() ? value : null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.dto.CodeSubmission;
+
+/**
+ * A language registry entry resolved against the executor defaults, as used for one run.
+ * @param compileCommand null for interpreted languages
+ * @param sourceRunCommand optional command that compiles and runs in one process
+ * @param judge0Id null when the language is not available on Judge0
+ */
+public record LanguageRuntime(CodeSubmission.Language language,
+                              String image,
+                              String extension,
+                              String compileCommand,
+                              String runCommand,
+                              String sourceRunCommand,
+                              long timeoutSeconds,
+                              long compileTimeoutSeconds,
+                              long memoryLimitMB,
+                              double cpuLimit,
+                              int poolMinIdle,
+                              int poolMaxSize,
+                              Integer judge0Id) {
+
+    public boolean isCompiled() {
+        return compileCommand != null;
+    }
+
+    /**
+     * Wall-clock budget for a single run, compile step included.
+     */
+    public long wallClockSeconds() {
+        return timeoutSeconds + (isCompiled() ? compileTimeoutSeconds : 0);
+    }
+}
@@ -0,0 +1,204 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.dto.ComparisonMode;
+import com.codejam.execution.dto.OutputDifference;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Incremental comparison of program output against expected output. Actual output is fed in chunks as
+ * it is produced and never buffered beyond the current line or token; the expected side is read from a
+ * {@link Reader} as far as the actual output has got. Test cases carry their expected output inline, so
+ * in practice that side is already in memory. Comparison stops at the first mismatch; later output is
+ * ignored. The float tolerance only applies to numeric tokens in {@link ComparisonMode#TOKENS} mode.
+ */
+final class OutputComparator {
+
+    private static final int READ_CHUNK = 8192;
+    private static final int MAX_REPORTED_CHARS = 200;
+
+    private final Reader expectedReader;
+    private final double floatTolerance;
+    private final UnitScanner expected;
+    private final UnitScanner actual;
+    private final char[] readBuffer = new char[READ_CHUNK];
+    private boolean expectedExhausted;
+    private OutputDifference difference;
+
+    private record Unit(String text, long line) {}
+
+    OutputComparator(Reader expectedReader, ComparisonMode mode, Double floatTolerance) {
+        this.expectedReader = expectedReader;
+        this.floatTolerance = mode == ComparisonMode.TOKENS && floatTolerance != null ? floatTolerance : 0;
+        this.expected = new UnitScanner(mode);
+        this.actual = new UnitScanner(mode);
+    }
+
+    /**
+     * Feed the next chunk of program output.
+     * @return false once a mismatch has been found
+     */
+    boolean accept(CharSequence chunk) {
+        if (difference != null) return false;
+        actual.feed(chunk);
+        drain();
+        return difference == null;
+    }
+
+    /**
+     * Signal end of program output.
+     * @return the first difference, or null if the output matched
+     */
+    OutputDifference finish() {
+        if (difference != null) return difference;
+        actual.end();
+        drain();
+        if (difference == null) {
+            Unit extra = nextExpected();
+            if (extra != null) {
+                difference = new OutputDifference(extra.line(), clip(extra.text()), null);
+            }
+        }
+        return difference;
+    }
+
+    boolean isMismatched() {
+        return difference != null;
+    }
+
+    private void drain() {
+        Unit got;
+        while (difference == null && (got = actual.poll()) != null) {
+            Unit want = nextExpected();
+            if (want == null) {
+                difference = new OutputDifference(got.line(), null, clip(got.text()));
+            } else if (!unitsMatch(want.text(), got.text())) {
+                difference = new OutputDifference(got.line(), clip(want.text()), clip(got.text()));
+            }
+        }
+    }
+
+    private Unit nextExpected() {
+        Unit unit;
+        while ((unit = expected.poll()) == null && !expectedExhausted) {
+            try {
+                int read = expectedReader.read(readBuffer);
+                if (read < 0) {
+                    expectedExhausted = true;
+                    expected.end();
+                } else {
+                    expected.feed(CharBuffer.wrap(readBuffer, 0, read));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return unit;
+    }
+
+    private boolean unitsMatch(String want, String got) {
+        if (want.equals(got)) return true;
+        if (floatTolerance <= 0) return false;
+        try {
+            double expectedValue = Double.parseDouble(want);
+            double actualValue = Double.parseDouble(got);
+            double delta = Math.abs(expectedValue - actualValue);
+            return delta <= floatTolerance || delta <= floatTolerance * Math.abs(expectedValue);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String clip(String text) {
+        return text.length() <= MAX_REPORTED_CHARS ? text : text.substring(0, MAX_REPORTED_CHARS) + "...";
+    }
+
+    /**
+     * Splits a character stream into comparison units (lines or tokens) as chunks arrive.
+     */
+    private static final class UnitScanner {
+        private final ComparisonMode mode;
+        private final StringBuilder current = new StringBuilder();
+        private final ArrayDeque<Unit> ready = new ArrayDeque<>();
+        // LINES mode: blank lines are held back until a non-blank line shows they are not trailing
+        private long pendingBlankLines;
+        private long pendingBlankFrom;
+        private long line = 1;
+        private long tokenLine = 1;
+        private boolean ended;
+
+        private UnitScanner(ComparisonMode mode) {
+            this.mode = mode;
+        }
+
+        void feed(CharSequence chunk) {
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                if (mode == ComparisonMode.TOKENS) {
+                    if (Character.isWhitespace(c)) {
+                        emitToken();
+                    } else {
+                        if (current.isEmpty()) tokenLine = line;
+                        current.append(c);
+                    }
+                    if (c == '\n') line++;
+                } else if (c == '\n') {
+                    emitLine();
+                    line++;
+                } else {
+                    current.append(c);
+                }
+            }
+        }
+
+        void end() {
+            if (ended) return;
+            ended = true;
+            switch (mode) {
+                case TOKENS -> emitToken();
+                // The text after the last newline is a line of its own, even when empty
+                case EXACT -> ready.add(new Unit(current.toString(), line));
+                case LINES -> {
+                    if (!current.isEmpty()) emitLine();
+                    pendingBlankLines = 0;
+                }
+            }
+            current.setLength(0);
+        }
+
+        Unit poll() {
+            return ready.poll();
+        }
+
+        private void emitToken() {
+            if (current.isEmpty()) return;
+            ready.add(new Unit(current.toString(), tokenLine));
+            current.setLength(0);
+        }
+
+        private void emitLine() {
+            if (mode == ComparisonMode.EXACT) {
+                ready.add(new Unit(current.toString(), line));
+                current.setLength(0);
+                return;
+            }
+            int end = current.length();
+            while (end > 0 && Character.isWhitespace(current.charAt(end - 1))) end--;
+            String text = current.substring(0, end);
+            current.setLength(0);
+            if (text.isEmpty()) {
+                if (pendingBlankLines++ == 0) pendingBlankFrom = line;
+                return;
+            }
+            for (long i = 0; i < pendingBlankLines; i++) {
+                ready.add(new Unit("", pendingBlankFrom + i));
+            }
+            pendingBlankLines = 0;
+            ready.add(new Unit(text, line));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.dto.ExecutionResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps at most one live execution per room. Each submission takes a ticket when it is accepted;
+ * a newer ticket supersedes older ones, so a run still waiting in a queue is skipped and a run in
+ * progress is cancelled by interrupting the thread driving it (which stops its container or
+ * abandons its Judge0 poll).
+ */
+@Slf4j
+@Component
+public class RoomExecutionTracker {
+
+    private final AtomicLong ticketSequence = new AtomicLong();
+    private final Map<String, Long> latestTickets = new ConcurrentHashMap<>();
+    private final Map<String, RoomRun> running = new ConcurrentHashMap<>();
+    // Tickets cancelled by their own client while still queued; skipped when they reach run()
+    private final Set<Long> abandonedTickets = ConcurrentHashMap.newKeySet();
+    private final Counter superseded;
+
+    public RoomExecutionTracker(MeterRegistry meterRegistry) {
+        this.superseded = meterRegistry.counter("execution.room.cancelled");
+    }
+
+    private static final class RoomRun {
+        private final long ticket;
+        private final Thread thread = Thread.currentThread();
+        private boolean finished;
+        private boolean cancelled;
+
+        private RoomRun(long ticket) {
+            this.ticket = ticket;
+        }
+
+        synchronized boolean cancel() {
+            if (finished) return false;
+            cancelled = true;
+            thread.interrupt();
+            return true;
+        }
+
+        synchronized boolean finish() {
+            finished = true;
+            return cancelled;
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Take a ticket for a new submission in the room, superseding any earlier one.
+     */
+    public long issueTicket(String roomId) {
+        long ticket = ticketSequence.incrementAndGet();
+        latestTickets.put(roomId, ticket);
+        return ticket;
+    }
+
+    /**
+     * Take back the ticket of a submission that was rejected before it was queued, so it no longer
+     * supersedes the room's earlier work. Only the room's latest ticket is dropped; a newer one is kept.
+     */
+    public void withdrawTicket(String roomId, long ticket) {
+        latestTickets.remove(roomId, ticket);
+    }
+
+    /**
+     * Cancel whatever the room has queued or running.
+     * @return true if a running execution was interrupted
+     */
+    public boolean cancel(String roomId) {
+        Long latest = latestTickets.get(roomId);
+        if (latest != null) abandon(roomId, latest);
+        RoomRun run = running.get(roomId);
+        boolean cancelled = run != null && run.cancel();
+        if (cancelled) {
+            superseded.increment();
+            log.info("Cancelled running execution for room {}", roomId);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancel the room's execution only while it is still the one holding {@code ticket}, so a client
+     * leaving an old run cannot cancel a newer submission.
+     * @return true if a running execution was interrupted
+     */
+    public boolean cancel(String roomId, long ticket) {
+        // Finished, or superseded by a newer ticket that cancels it anyway
+        if (!Long.valueOf(ticket).equals(latestTickets.get(roomId))) return false;
+        abandon(roomId, ticket);
+        RoomRun run = running.get(roomId);
+        boolean cancelled = run != null && run.ticket == ticket && run.cancel();
+        if (cancelled) {
+            superseded.increment();
+            log.info("Cancelled abandoned execution for room {}", roomId);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Mark the room's latest ticket so its run is skipped if still queued. Earlier queued tickets are
+     * already superseded by it, and the mark is cleared when the run starts or finishes.
+     */
+    private void abandon(String roomId, long ticket) {
+        abandonedTickets.add(ticket);
+        if (!Long.valueOf(ticket).equals(latestTickets.get(roomId))) {
+            // Finished in the meantime; nothing else would clear the mark
+            abandonedTickets.remove(ticket);
+        }
+    }
+
+    public ExecutionResult run(String roomId, long ticket, Supplier<ExecutionResult> execution) {
+        if (isSuperseded(roomId, ticket) || abandonedTickets.remove(ticket)) {
+            log.debug("Skipping superseded execution for room {}", roomId);
+            latestTickets.remove(roomId, ticket);
+            return ExecutionResult.cancelled(roomId);
+        }
+        RoomRun run = new RoomRun(ticket);
+        RoomRun previous = running.put(roomId, run);
+        if (previous != null && previous.ticket < ticket && previous.cancel()) {
+            superseded.increment();
+            log.info("Superseding in-flight execution for room {}", roomId);
+        }
+        try {
+            ExecutionResult result = execution.get();
+            return run.isCancelled() ? ExecutionResult.cancelled(roomId) : result;
+        } catch (RuntimeException e) {
+            if (run.isCancelled()) return ExecutionResult.cancelled(roomId);
+            throw e;
+        } finally {
+            if (run.finish()) {
+                // Clear the cancellation interrupt so it does not leak into the next task on this thread
+                Thread.interrupted();
+            }
+            running.remove(roomId, run);
+            latestTickets.remove(roomId, ticket);
+            abandonedTickets.remove(ticket);
+        }
+    }
+
+    private boolean isSuperseded(String roomId, long ticket) {
+        Long latest = latestTickets.get(roomId);
+        return latest != null && latest > ticket;
+    }
+}
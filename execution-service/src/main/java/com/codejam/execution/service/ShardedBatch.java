@@ -0,0 +1,245 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.dto.BatchExecutionResult;
+import com.codejam.execution.dto.BatchSubmission;
+import com.codejam.execution.dto.TestCaseResult;
+import com.codejam.execution.dto.Verdict;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared state for a test suite split into shards that run concurrently. Cases are dealt out
+ * round-robin so slow cases spread across shards; results are collected per case index and, with
+ * {@code stopOnFailure}, the first failing case cancels every other shard. Completion is tracked per
+ * shard rather than through its {@link Future}, so a cancelled shard still counts as running until its
+ * own cleanup has released its sandbox.
+ */
+@Slf4j
+final class ShardedBatch {
+
+    /**
+     * Runs the given cases (indexes into the batch) and records each result on the batch.
+     */
+    @FunctionalInterface
+    interface Shard {
+        void run(int shardIndex, List<Integer> caseIndexes, ShardedBatch batch) throws Exception;
+    }
+
+    private final BatchSubmission batch;
+    private final AtomicReferenceArray<TestCaseResult> results;
+    private final List<BackgroundShard> shards = new ArrayList<>();
+    private volatile boolean stopped;
+    private volatile String compileOutput;
+    private volatile boolean compileFailed;
+
+    ShardedBatch(BatchSubmission batch) {
+        this.batch = batch;
+        this.results = new AtomicReferenceArray<>(batch.getTestCases().size());
+    }
+
+    BatchSubmission batch() {
+        return batch;
+    }
+
+    /**
+     * Split the suite into {@code shardCount} shards; shard 0 runs on the calling thread, the rest on
+     * {@code executor}. Returns once every shard has finished or been cancelled.
+     */
+    void run(ExecutorService executor, int shardCount, Shard shard) {
+        List<List<Integer>> partitions = partition(batch.getTestCases().size(), shardCount);
+        List<Integer> inline = new ArrayList<>();
+        synchronized (shards) {
+            for (int i = 1; i < partitions.size(); i++) {
+                BackgroundShard background = new BackgroundShard();
+                int shardIndex = i;
+                List<Integer> cases = partitions.get(i);
+                try {
+                    background.future = executor.submit(() -> background.run(() -> shard.run(shardIndex, cases, this)));
+                    shards.add(background);
+                } catch (RejectedExecutionException e) {
+                    inline.add(i);
+                }
+            }
+        }
+        try {
+            shard.run(0, partitions.get(0), this);
+            for (int i : inline) {
+                if (stopped) break;
+                shard.run(i, partitions.get(i), this);
+            }
+        } catch (CustomException e) {
+            abort();
+            throw e;
+        } catch (Exception e) {
+            log.error("Shard failed for room {}", batch.getRoomId(), e);
+            abort();
+            throw new CustomException("EXECUTION_FAILED", "Code execution failed", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        awaitShards();
+    }
+
+    /**
+     * Cancel the other shards and wait for them to release their sandboxes before failing the batch.
+     */
+    private void abort() {
+        stopped = true;
+        cancelShards();
+        try {
+            awaitShards();
+        } catch (CustomException e) {
+            log.debug("Shard failed while aborting batch for room {}: {}", batch.getRoomId(), e.getCustomMessage());
+        }
+    }
+
+    /**
+     * Whether shards should stop taking new cases.
+     */
+    boolean shouldStop() {
+        return stopped;
+    }
+
+    void record(int caseIndex, TestCaseResult result) {
+        results.set(caseIndex, result);
+        if (result.getVerdict() != Verdict.ACCEPTED && batch.isStopOnFailure()) {
+            stopped = true;
+            cancelShards();
+        }
+    }
+
+    void compileFailed(String output) {
+        compileOutput = output;
+        compileFailed = true;
+        stopped = true;
+        cancelShards();
+    }
+
+    void compiled(String output) {
+        if (compileOutput == null) {
+            compileOutput = output;
+        }
+    }
+
+    BatchExecutionResult toResult(long executionTimeMs) {
+        List<TestCaseResult> cases = new ArrayList<>(results.length());
+        for (int i = 0; i < results.length(); i++) {
+            TestCaseResult result = results.get(i);
+            String id = batch.getTestCases().get(i).getId();
+            if (compileFailed) {
+                result = TestCaseResult.builder().index(i).id(id).verdict(Verdict.COMPILATION_ERROR).build();
+            } else if (result == null) {
+                result = TestCaseResult.skipped(i, id);
+            }
+            cases.add(result);
+        }
+        return BatchExecutionResult.of(batch.getRoomId(), cases, compileOutput, executionTimeMs);
+    }
+
+    private void cancelShards() {
+        synchronized (shards) {
+            shards.forEach(BackgroundShard::cancel);
+        }
+    }
+
+    /**
+     * Wait until every background shard has finished, including the cleanup of cancelled ones, so the
+     * caller only releases shard permits once their sandboxes are gone and no late results arrive.
+     */
+    private void awaitShards() {
+        List<BackgroundShard> pending;
+        synchronized (shards) {
+            pending = new ArrayList<>(shards);
+        }
+        CustomException failure = null;
+        for (BackgroundShard shard : pending) {
+            try {
+                shard.done.get();
+            } catch (ExecutionException e) {
+                // A cancelled shard may fail on its interrupted exec; only failures of live shards count
+                if (!stopped && failure == null) {
+                    failure = e.getCause() instanceof CustomException ce ? ce
+                            : new CustomException("EXECUTION_FAILED", "Code execution failed", HttpStatus.INTERNAL_SERVER_ERROR);
+                    cancelShards();
+                }
+            } catch (InterruptedException e) {
+                stopped = true;
+                cancelShards();
+                pending.forEach(BackgroundShard::awaitUninterruptibly);
+                Thread.currentThread().interrupt();
+                throw new CustomException("EXECUTION_INTERRUPTED", "Execution interrupted", HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * A shard on the executor. {@code done} completes once the shard body, including its sandbox cleanup,
+     * has returned, or immediately if the shard is cancelled before it started.
+     */
+    private static final class BackgroundShard {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile Future<?> future;
+
+        @FunctionalInterface
+        interface Body {
+            void run() throws Exception;
+        }
+
+        Void run(Body body) {
+            if (!claimed.compareAndSet(false, true)) return null;
+            try {
+                body.run();
+                done.complete(null);
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            }
+            return null;
+        }
+
+        void cancel() {
+            if (claimed.compareAndSet(false, true)) {
+                done.complete(null);
+            }
+            Future<?> running = future;
+            if (running != null) running.cancel(true);
+        }
+
+        void awaitUninterruptibly() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.get();
+                    break;
+                } catch (ExecutionException e) {
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    static List<List<Integer>> partition(int caseCount, int shardCount) {
+        int shards = Math.max(1, Math.min(shardCount, caseCount));
+        List<List<Integer>> partitions = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < caseCount; i++) {
+            partitions.get(i % shards).add(i);
+        }
+        return partitions;
+    }
+}
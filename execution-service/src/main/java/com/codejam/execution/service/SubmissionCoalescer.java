@@ -0,0 +1,80 @@
+package com.codejam.execution.service;
+
+import com.codejam.commons.exception.CustomException;
+import com.codejam.execution.dto.ExecutionResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution: while a submission with a given fingerprint is running, identical
+ * submissions wait for that run instead of starting their own, and each gets a copy of the
+ * result with its own room id. If the leading run is cancelled by its own room, waiting callers
+ * start over rather than inherit the cancellation.
+ */
+@Slf4j
+@Component
+public class SubmissionCoalescer {
+
+    private final Map<String, CompletableFuture<ExecutionResult>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public SubmissionCoalescer(MeterRegistry meterRegistry) {
+        this.coalesced = meterRegistry.counter("execution.coalesced");
+        meterRegistry.gaugeMapSize("execution.inflight.unique", List.of(), inFlight);
+    }
+
+    public ExecutionResult execute(String fingerprint, String roomId, Supplier<ExecutionResult> execution) {
+        CompletableFuture<ExecutionResult> leader = new CompletableFuture<>();
+        CompletableFuture<ExecutionResult> existing = inFlight.putIfAbsent(fingerprint, leader);
+        if (existing != null) {
+            coalesced.increment();
+            log.debug("Coalescing execution for room {} onto in-flight run", roomId);
+            return join(existing, fingerprint, roomId, execution);
+        }
+        try {
+            ExecutionResult result = execution.get();
+            if (Thread.currentThread().isInterrupted()) {
+                leader.cancel(false);
+            } else {
+                leader.complete(result);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                leader.cancel(false);
+            } else {
+                leader.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(fingerprint, leader);
+        }
+    }
+
+    private ExecutionResult join(CompletableFuture<ExecutionResult> shared, String fingerprint, String roomId,
+                                 Supplier<ExecutionResult> execution) {
+        try {
+            return shared.get().toBuilder().roomId(roomId).build();
+        } catch (CancellationException e) {
+            log.debug("In-flight run was cancelled by its room, re-running for room {}", roomId);
+            return execute(fingerprint, roomId, execution);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new CustomException("EXECUTION_FAILED", "Code execution failed", HttpStatus.INTERNAL_SERVER_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("EXECUTION_INTERRUPTED", "Execution interrupted", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
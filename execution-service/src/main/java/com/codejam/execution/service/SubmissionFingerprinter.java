@@ -0,0 +1,61 @@
+package com.codejam.execution.service;
+
+import com.codejam.execution.config.MicroserviceConfig;
+import com.codejam.execution.dto.CodeSubmission;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content hash of everything that determines an execution's outcome: language, source and the
+ * limits it runs under. Two submissions with the same fingerprint produce the same result.
+ */
+@Component
+@RequiredArgsConstructor
+public class SubmissionFingerprinter {
+
+    private final MicroserviceConfig microserviceConfig;
+    private final LanguageRegistry languageRegistry;
+
+    public String fingerprint(CodeSubmission submission) {
+        MicroserviceConfig.ExecutionConfig executor = microserviceConfig.getExecutor();
+        LanguageRuntime runtime = languageRegistry.find(submission.getLanguage()).orElse(null);
+        if (runtime == null) {
+            return sha256(executor.getType(), String.valueOf(submission.getLanguage()), submission.getCode());
+        }
+        return sha256(
+                executor.getType(),
+                submission.getLanguage().name(),
+                submission.getCode(),
+                runtime.image(),
+                runtime.compileCommand(),
+                runtime.runCommand(),
+                runtime.sourceRunCommand(),
+                String.valueOf(runtime.judge0Id()),
+                String.valueOf(runtime.timeoutSeconds()),
+                String.valueOf(runtime.compileTimeoutSeconds()),
+                String.valueOf(runtime.memoryLimitMB()),
+                String.valueOf(runtime.cpuLimit()),
+                String.valueOf(executor.getJavaRuntime().getLaunchMode()));
+    }
+
+    private String sha256(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                byte[] bytes = (part != null ? part : "").getBytes(StandardCharsets.UTF_8);
+                // Length-prefix each part so ("ab", "c") and ("a", "bc") hash differently
+                digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                digest.update((byte) ':');
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}